@@ -27,6 +27,14 @@ loom {
     }
 }
 
+// Download benchmark against a local stand-in for the Paper/Purpur APIs; not part of the mod jar
+sourceSets {
+    create("benchmark") {
+        compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+        runtimeClasspath += sourceSets["main"].output + sourceSets["main"].runtimeClasspath
+    }
+}
+
 dependencies {
     // Minecraft & Fabric
     minecraft("com.mojang:minecraft:${project.property("minecraft_version")}")
@@ -39,11 +47,22 @@ dependencies {
         exclude(group = "net.fabricmc.fabric-api")
     }
 
-    // HTTP Client
+    // HTTP Client (include isn't transitive, so okio and the Kotlin stdlib are nested explicitly)
     include(implementation("com.squareup.okhttp3:okhttp:${project.property("okhttp_version")}")!!)
+    include("com.squareup.okio:okio-jvm:${project.property("okio_version")}")
+    include("org.jetbrains.kotlin:kotlin-stdlib:${project.property("kotlin_stdlib_version")}")
 
     // JSON (Minecraft already includes Gson, but we ensure a specific version)
     include(implementation("com.google.code.gson:gson:${project.property("gson_version")}")!!)
+
+    // Unit tests
+    testImplementation(platform("org.junit:junit-bom:${project.property("junit_version")}"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    // JMH for the metadata benchmark
+    "benchmarkImplementation"("org.openjdk.jmh:jmh-core:${project.property("jmh_version")}")
+    "benchmarkAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:${project.property("jmh_version")}")
 }
 
 tasks.processResources {
@@ -54,6 +73,29 @@ tasks.processResources {
     }
 }
 
+tasks.test {
+    useJUnitPlatform()
+}
+
+tasks.register<JavaExec>("downloadBenchmark") {
+    group = "verification"
+    description = "Measures jar download throughput, resolve latency and resume correctness against a local API stand-in."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("com.embeddedmc.benchmark.DownloadBenchmark")
+    workingDir = layout.buildDirectory.dir("benchmark").get().asFile
+    doFirst { workingDir.mkdirs() }
+}
+
+tasks.register<JavaExec>("metadataBenchmark") {
+    group = "verification"
+    description = "Runs the JMH benchmark of API metadata parsing (time and allocation per lookup) against a local API stand-in."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args("MetadataBenchmark", "-prof", "gc")
+    workingDir = layout.buildDirectory.dir("benchmark").get().asFile
+    doFirst { workingDir.mkdirs() }
+}
+
 tasks.withType<JavaCompile> {
     options.release.set(21)
 }
@@ -0,0 +1,232 @@
+package com.embeddedmc.benchmark;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ModConfig;
+import com.embeddedmc.config.ServerInstance;
+import com.embeddedmc.download.DownloadManager;
+import com.embeddedmc.download.JarHashCache;
+import com.embeddedmc.download.JarStore;
+import com.embeddedmc.download.PaperAPI;
+import com.embeddedmc.download.PurpurAPI;
+import com.embeddedmc.server.ServerManager;
+import com.embeddedmc.server.ServerType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Runs the download path end to end against {@link StandInApi}: resolve
+ * latency of the Paper and Purpur clients, jar throughput over 1/4/8
+ * connections under different network conditions, and correctness checks
+ * for resuming, checksum verification and Purpur's MD5 path.
+ *
+ * Run with {@code ./gradlew downloadBenchmark}; exits with 1 if a check
+ * fails. {@code -Dbenchmark.jarMB} and {@code -Dbenchmark.builds} change the
+ * size of the generated jar and build lists.
+ */
+public final class DownloadBenchmark {
+    private static final int JAR_MB = Integer.getInteger("benchmark.jarMB", 32);
+    private static final int BUILDS = Integer.getInteger("benchmark.builds", 400);
+    private static final int RESOLVE_ROUNDS = 20;
+    private static final int[] CONNECTIONS = {1, 4, 8};
+
+    private record Scenario(String name, int latencyMs, long bytesPerSecond, boolean ranges, double faultRate) {}
+
+    private static final List<Scenario> SCENARIOS = List.of(
+            new Scenario("loopback", 0, 0, true, 0),
+            new Scenario("40 ms, 8 MB/s per connection", 40, 8L << 20, true, 0),
+            new Scenario("40 ms, 8 MB/s, 5% cut responses", 40, 8L << 20, true, 0.05),
+            new Scenario("40 ms, 8 MB/s, no ranges", 40, 8L << 20, false, 0)
+    );
+
+    private static int failures;
+
+    private DownloadBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        Path data = Path.of(System.getProperty("user.dir"), "embeddedmc");
+        deleteRecursively(data);
+
+        try (StandInApi api = new StandInApi(JAR_MB << 20, BUILDS)) {
+            // Must be set before the API classes are loaded
+            System.setProperty("embeddedmc.api.paper", api.paperBase());
+            System.setProperty("embeddedmc.api.purpur", api.purpurBase());
+
+            EmbeddedMC mod = new EmbeddedMC();
+            mod.onInitialize();
+            ModConfig config = mod.getConfig();
+            config.setPrefetchJars(false);
+            config.setAutoUpdateBuilds(false);
+
+            ServerManager servers = mod.getServerManager();
+            ServerInstance paper = servers.createInstance("Benchmark Paper", ServerType.PAPER, "1.21.11");
+            ServerInstance purpur = servers.createInstance("Benchmark Purpur", ServerType.PURPUR, "1.21.11");
+
+            System.out.printf("Stand-in API with a %d MB jar and %d builds per version%n%n", JAR_MB, BUILDS);
+            benchmarkResolve(api);
+            benchmarkThroughput(api, config, paper);
+            checkResume(api, config, paper);
+            checkCorruption(api, paper);
+            checkPurpur(api, purpur);
+        }
+
+        System.out.println();
+        System.out.println(failures == 0 ? "All checks passed" : failures + " check(s) failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Latest build lookup plus build details, first against the stand-in
+     * (every round a new version, so nothing is cached) and then from the
+     * metadata cache.
+     */
+    private static void benchmarkResolve(StandInApi api) throws IOException {
+        api.reset().latency(20);
+        System.out.println("Resolve latency (20 ms per request)");
+
+        List<Long> cold = new ArrayList<>();
+        List<Long> warm = new ArrayList<>();
+        for (int i = 0; i < RESOLVE_ROUNDS; i++) {
+            String version = "1.21." + (100 + i);
+            long start = System.nanoTime();
+            PaperAPI.getDownload(ServerType.PAPER, version);
+            cold.add(System.nanoTime() - start);
+        }
+        for (int i = 0; i < RESOLVE_ROUNDS * 10; i++) {
+            long start = System.nanoTime();
+            PaperAPI.getDownload(ServerType.PAPER, "1.21.100");
+            warm.add(System.nanoTime() - start);
+        }
+        printLatency("Paper, uncached", cold);
+        printLatency("Paper, cached", warm);
+
+        cold.clear();
+        warm.clear();
+        for (int i = 0; i < RESOLVE_ROUNDS; i++) {
+            String version = "1.21." + (100 + i);
+            long start = System.nanoTime();
+            PurpurAPI.getDownload(version);
+            cold.add(System.nanoTime() - start);
+        }
+        for (int i = 0; i < RESOLVE_ROUNDS * 10; i++) {
+            long start = System.nanoTime();
+            PurpurAPI.getDownload("1.21.100");
+            warm.add(System.nanoTime() - start);
+        }
+        printLatency("Purpur, uncached", cold);
+        printLatency("Purpur, cached", warm);
+        System.out.println();
+    }
+
+    private static void benchmarkThroughput(StandInApi api, ModConfig config, ServerInstance paper) throws IOException {
+        System.out.println("Jar download throughput");
+        System.out.printf("  %-34s %5s %10s %9s %9s%n", "scenario", "conns", "MB/s", "seconds", "requests");
+        for (Scenario scenario : SCENARIOS) {
+            for (int connections : CONNECTIONS) {
+                if (!scenario.ranges() && connections > 1) {
+                    // Falls back to a single stream anyway
+                    continue;
+                }
+                api.reset().latency(scenario.latencyMs()).bandwidth(scenario.bytesPerSecond())
+                        .ranges(scenario.ranges()).faultRate(scenario.faultRate());
+                config.setDownloadConnections(connections);
+                clearJars(paper);
+
+                int requestsBefore = api.getRequests();
+                long start = System.nanoTime();
+                boolean ok = DownloadManager.downloadServer(paper, null).join();
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                System.out.printf("  %-34s %5d %10.1f %9.2f %9d%n", scenario.name(), connections,
+                        api.getJarSize() / 1048576.0 / seconds, seconds, api.getRequests() - requestsBefore);
+                if (!ok || !matches(api, paper.getServerJar())) {
+                    check(false, scenario.name() + ", " + connections + " connections: jar intact");
+                }
+            }
+        }
+        config.setDownloadConnections(4);
+        System.out.println();
+    }
+
+    /**
+     * Cut the connection for good halfway through, then download again: the
+     * second attempt must only fetch what is missing and produce the same jar.
+     */
+    private static void checkResume(StandInApi api, ModConfig config, ServerInstance paper) throws IOException {
+        api.reset().bandwidth(32L << 20).byteBudget(api.getJarSize() / 2);
+        config.setDownloadConnections(4);
+        clearJars(paper);
+
+        boolean first = DownloadManager.downloadServer(paper, null).join();
+        check(!first, "resume: interrupted download reports failure");
+        check(!Files.exists(paper.getServerJar()), "resume: no partial server.jar");
+
+        api.reset();
+        long servedBefore = api.getBytesServed();
+        boolean second = DownloadManager.downloadServer(paper, null).join();
+        long resumed = api.getBytesServed() - servedBefore;
+
+        check(second && matches(api, paper.getServerJar()), "resume: jar intact after resuming");
+        check(resumed < api.getJarSize() * 0.6, String.format("resume: fetched %.1f of %.1f MB the second time",
+                resumed / 1048576.0, api.getJarSize() / 1048576.0));
+    }
+
+    private static void checkCorruption(StandInApi api, ServerInstance paper) throws IOException {
+        api.reset().corrupt(true);
+        clearJars(paper);
+        boolean ok = DownloadManager.downloadServer(paper, null).join();
+        check(!ok && !Files.exists(paper.getServerJar()), "corrupted download is rejected");
+        api.reset();
+    }
+
+    private static void checkPurpur(StandInApi api, ServerInstance purpur) throws IOException {
+        api.reset();
+        clearJars(purpur);
+        boolean ok = DownloadManager.downloadServer(purpur, null).join();
+        check(ok && matches(api, purpur.getServerJar()), "Purpur download verified by MD5");
+    }
+
+    private static boolean matches(StandInApi api, Path jar) throws IOException {
+        return Files.exists(jar) && JarHashCache.hash(jar, "SHA-256").equals(api.getSha256());
+    }
+
+    /**
+     * Start from an empty jar store so the next run really downloads.
+     */
+    private static void clearJars(ServerInstance instance) throws IOException {
+        Files.deleteIfExists(instance.getServerJar());
+        deleteRecursively(JarStore.getRoot().resolve("objects"));
+        deleteRecursively(JarStore.getRoot().resolve("downloads"));
+    }
+
+    private static void check(boolean ok, String what) {
+        System.out.println("  " + (ok ? "PASS " : "FAIL ") + what);
+        if (!ok) {
+            failures++;
+        }
+    }
+
+    private static void printLatency(String label, List<Long> nanos) {
+        List<Long> sorted = new ArrayList<>(nanos);
+        Collections.sort(sorted);
+        System.out.printf("  %-18s median %8.3f ms   p95 %8.3f ms%n", label,
+                sorted.get(sorted.size() / 2) / 1e6, sorted.get((int) (sorted.size() * 0.95)) / 1e6);
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
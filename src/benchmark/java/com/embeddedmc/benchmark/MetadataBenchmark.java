@@ -0,0 +1,122 @@
+package com.embeddedmc.benchmark;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.download.BuildInfo;
+import com.embeddedmc.download.Http;
+import com.embeddedmc.download.PaperAPI;
+import com.embeddedmc.server.ServerType;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JMH benchmark of the API metadata parsing, against a Paper build list from
+ * {@link StandInApi}: a Gson tree parse of the whole document (what the
+ * clients used to do) and the streaming parsers reading it from the
+ * metadata cache.
+ *
+ * Run with {@code ./gradlew metadataBenchmark}, which adds JMH's gc profiler
+ * for the allocation per lookup. The length of the build list is the
+ * {@code builds} parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// The API base URLs are fixed once the API classes are loaded, so every benchmark needs its own JVM
+@Fork(1)
+public class MetadataBenchmark {
+    private static final String VERSION = "1.21.11";
+
+    @Param("2000")
+    public int builds;
+
+    private StandInApi api;
+    private Path document;
+
+    @Setup
+    public void start() throws IOException {
+        deleteRecursively(Path.of(System.getProperty("user.dir"), "embeddedmc"));
+        api = new StandInApi(1024, builds);
+        // Must be set before the API classes are loaded
+        System.setProperty("embeddedmc.api.paper", api.paperBase());
+        System.setProperty("embeddedmc.api.purpur", api.purpurBase());
+        new EmbeddedMC().onInitialize();
+
+        // The same document the cache holds, for the tree parse
+        String url = api.paperBase() + "/projects/paper/versions/" + VERSION + "/builds";
+        document = Files.createTempFile("builds", ".json");
+        try (Response response = Http.api().newCall(new Request.Builder().url(url).build()).execute()) {
+            Files.copy(response.body().byteStream(), document, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // Also fills the cache, so the measured lookups don't go to the network
+        int latest = streamingLatestBuild();
+        List<BuildInfo> list = streamingBuilds();
+        if (latest != treeLatestBuild() || list.size() != builds || list.get(0).build() != latest) {
+            throw new IllegalStateException("Streaming parsers disagree with the tree parse");
+        }
+    }
+
+    @TearDown
+    public void stop() throws IOException {
+        api.close();
+        Files.deleteIfExists(document);
+    }
+
+    @Benchmark
+    public int treeLatestBuild() throws IOException {
+        try (Reader reader = Files.newBufferedReader(document, StandardCharsets.UTF_8)) {
+            JsonArray list = JsonParser.parseReader(reader).getAsJsonObject().getAsJsonArray("builds");
+            JsonObject last = list.get(list.size() - 1).getAsJsonObject();
+            return last.get("build").getAsInt();
+        }
+    }
+
+    @Benchmark
+    public int streamingLatestBuild() throws IOException {
+        return PaperAPI.getLatestBuild(ServerType.PAPER, VERSION);
+    }
+
+    @Benchmark
+    public List<BuildInfo> streamingBuilds() throws IOException {
+        return PaperAPI.getBuilds(ServerType.PAPER, VERSION);
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.embeddedmc.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the Paper and Purpur v2 APIs on a JDK HttpServer. Every
+ * version has the same list of builds and every build serves the same
+ * generated jar, with the real checksums in the metadata. Latency, bandwidth,
+ * range support and faults can be changed between runs.
+ *
+ * Point the mod at it with the {@code embeddedmc.api.paper} and
+ * {@code embeddedmc.api.purpur} system properties ({@link #paperBase()},
+ * {@link #purpurBase()}) before the API classes are first used.
+ */
+public class StandInApi implements AutoCloseable {
+    private static final Pattern PAPER_PROJECT = Pattern.compile("/papermc/v2/projects/([^/]+)");
+    private static final Pattern PAPER_BUILDS = Pattern.compile("/papermc/v2/projects/([^/]+)/versions/([^/]+)/builds");
+    private static final Pattern PAPER_BUILD = Pattern.compile("/papermc/v2/projects/([^/]+)/versions/([^/]+)/builds/(\\d+)");
+    private static final Pattern PAPER_DOWNLOAD = Pattern.compile("/papermc/v2/projects/([^/]+)/versions/([^/]+)/builds/(\\d+)/downloads/[^/]+");
+    private static final Pattern PURPUR_PROJECT = Pattern.compile("/purpurmc/v2/purpur");
+    private static final Pattern PURPUR_BUILDS = Pattern.compile("/purpurmc/v2/purpur/([^/]+)");
+    private static final Pattern PURPUR_BUILD = Pattern.compile("/purpurmc/v2/purpur/([^/]+)/(\\d+)");
+    private static final Pattern PURPUR_DOWNLOAD = Pattern.compile("/purpurmc/v2/purpur/([^/]+)/(\\d+)/download");
+    private static final List<String> VERSIONS = List.of("1.21.8", "1.21.9", "1.21.10", "1.21.11");
+    private static final int CHUNK_BYTES = 16 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] jar;
+    private final String sha256;
+    private final String md5;
+    private final int builds;
+
+    private volatile int latencyMs;
+    private volatile long bytesPerSecond;
+    private volatile boolean ranges = true;
+    private volatile double faultRate;
+    private volatile long byteBudget = -1;
+    private volatile boolean corrupt;
+
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * @param jarBytes size of the generated server jar
+     * @param builds   number of builds listed per version
+     */
+    public StandInApi(int jarBytes, int builds) throws IOException {
+        this.jar = new byte[jarBytes];
+        new Random(jarBytes).nextBytes(jar);
+        this.sha256 = hex("SHA-256", jar);
+        this.md5 = hex("MD5", jar);
+        this.builds = builds;
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "StandInApi");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String paperBase() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/papermc/v2";
+    }
+
+    public String purpurBase() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/purpurmc/v2";
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public int getJarSize() {
+        return jar.length;
+    }
+
+    /**
+     * Delay before every response, like the round trip to a distant server.
+     */
+    public StandInApi latency(int latencyMs) {
+        this.latencyMs = latencyMs;
+        return this;
+    }
+
+    /**
+     * Rate limit per connection, 0 = unlimited.
+     */
+    public StandInApi bandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Whether jar downloads honor Range headers.
+     */
+    public StandInApi ranges(boolean ranges) {
+        this.ranges = ranges;
+        return this;
+    }
+
+    /**
+     * Chance that a jar response is cut off somewhere in the middle.
+     */
+    public StandInApi faultRate(double faultRate) {
+        this.faultRate = faultRate;
+        return this;
+    }
+
+    /**
+     * Serve only this many more jar bytes, then answer every download with
+     * 503 - like a connection that goes away for good. -1 = unlimited.
+     */
+    public StandInApi byteBudget(long byteBudget) {
+        this.byteBudget = byteBudget;
+        return this;
+    }
+
+    /**
+     * Flip one byte of every jar response so checksum verification must fail.
+     */
+    public StandInApi corrupt(boolean corrupt) {
+        this.corrupt = corrupt;
+        return this;
+    }
+
+    public StandInApi reset() {
+        return latency(0).bandwidth(0).ranges(true).faultRate(0).byteBudget(-1).corrupt(false);
+    }
+
+    public long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            sleep(latencyMs);
+            String path = exchange.getRequestURI().getPath();
+            Matcher matcher;
+
+            if ((matcher = PAPER_DOWNLOAD.matcher(path)).matches() || (matcher = PURPUR_DOWNLOAD.matcher(path)).matches()) {
+                serveJar(exchange);
+            } else if ((matcher = PAPER_BUILD.matcher(path)).matches()) {
+                sendJson(exchange, paperBuild(matcher.group(1), matcher.group(2), Integer.parseInt(matcher.group(3))));
+            } else if ((matcher = PAPER_BUILDS.matcher(path)).matches()) {
+                sendJson(exchange, paperBuilds(matcher.group(1), matcher.group(2)));
+            } else if ((matcher = PAPER_PROJECT.matcher(path)).matches()) {
+                sendJson(exchange, paperProject(matcher.group(1)));
+            } else if ((matcher = PURPUR_BUILD.matcher(path)).matches()) {
+                sendJson(exchange, purpurBuild(matcher.group(1), Integer.parseInt(matcher.group(2))));
+            } else if ((matcher = PURPUR_BUILDS.matcher(path)).matches()) {
+                boolean detailed = "detailed=true".equals(exchange.getRequestURI().getQuery());
+                sendJson(exchange, purpurBuilds(matcher.group(1), detailed));
+            } else if (PURPUR_PROJECT.matcher(path).matches()) {
+                sendJson(exchange, purpurProject());
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (IOException e) {
+            // Client went away (cancelled download, injected fault)
+        }
+    }
+
+    private void serveJar(HttpExchange exchange) throws IOException {
+        long budget = byteBudget;
+        if (budget == 0) {
+            exchange.getResponseHeaders().add("Retry-After", "0");
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+
+        String etag = "\"" + sha256.substring(0, 16) + "\"";
+        long start = 0;
+        long end = jar.length - 1;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        boolean partial = ranges && range != null && range.startsWith("bytes=")
+                && (ifRange == null || ifRange.equals(etag));
+        if (partial) {
+            String[] bounds = range.substring(6).split("-", 2);
+            start = Long.parseLong(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                end = Math.min(end, Long.parseLong(bounds[1]));
+            }
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + jar.length);
+        }
+        if (ranges) {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            exchange.getResponseHeaders().add("ETag", etag);
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/java-archive");
+
+        long length = end - start + 1;
+        exchange.sendResponseHeaders(partial ? 206 : 200, length);
+
+        // Cut-off point for an injected fault, somewhere in this response
+        long cutAt = ThreadLocalRandom.current().nextDouble() < faultRate
+                ? ThreadLocalRandom.current().nextLong(length) : Long.MAX_VALUE;
+
+        OutputStream out = exchange.getResponseBody();
+        long sent = 0;
+        long began = System.nanoTime();
+        while (sent < length) {
+            int chunk = (int) Math.min(CHUNK_BYTES, length - sent);
+            if (sent + chunk > cutAt || !takeBudget(chunk)) {
+                // Drop the connection mid-body
+                throw new IOException("Injected fault");
+            }
+            int offset = (int) (start + sent);
+            if (corrupt && offset <= jar.length / 2 && jar.length / 2 < offset + chunk) {
+                byte[] copy = Arrays.copyOfRange(jar, offset, offset + chunk);
+                copy[jar.length / 2 - offset] ^= 1;
+                out.write(copy);
+            } else {
+                out.write(jar, offset, chunk);
+            }
+            sent += chunk;
+            bytesServed.addAndGet(chunk);
+            throttle(sent, began);
+        }
+    }
+
+    private boolean takeBudget(int bytes) {
+        synchronized (this) {
+            if (byteBudget < 0) {
+                return true;
+            }
+            if (byteBudget < bytes) {
+                byteBudget = 0;
+                return false;
+            }
+            byteBudget -= bytes;
+            return true;
+        }
+    }
+
+    private void throttle(long sent, long began) {
+        long rate = bytesPerSecond;
+        if (rate <= 0) {
+            return;
+        }
+        long dueNanos = sent * 1_000_000_000L / rate;
+        long aheadMs = (dueNanos - (System.nanoTime() - began)) / 1_000_000;
+        sleep((int) aheadMs);
+    }
+
+    private JsonObject paperProject(String project) {
+        JsonObject json = new JsonObject();
+        json.addProperty("project_id", project);
+        json.addProperty("project_name", project);
+        json.add("versions", strings(VERSIONS));
+        return json;
+    }
+
+    private JsonObject paperBuilds(String project, String version) {
+        JsonArray list = new JsonArray();
+        for (int build = 1; build <= builds; build++) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("build", build);
+            entry.addProperty("time", "2025-06-01T12:00:00.000Z");
+            entry.addProperty("channel", "default");
+            entry.addProperty("promoted", false);
+            JsonArray changes = new JsonArray();
+            JsonObject change = new JsonObject();
+            change.addProperty("commit", Integer.toHexString(build * 7919));
+            change.addProperty("summary", "Change " + build);
+            change.addProperty("message", "Change " + build + "\n\n" + "Details ".repeat(40));
+            changes.add(change);
+            entry.add("changes", changes);
+            entry.add("downloads", paperDownloads(project, version, build));
+            list.add(entry);
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("project_id", project);
+        json.addProperty("version", version);
+        json.add("builds", list);
+        return json;
+    }
+
+    private JsonObject paperBuild(String project, String version, int build) {
+        JsonObject json = new JsonObject();
+        json.addProperty("project_id", project);
+        json.addProperty("version", version);
+        json.addProperty("build", build);
+        json.add("downloads", paperDownloads(project, version, build));
+        return json;
+    }
+
+    private JsonObject paperDownloads(String project, String version, int build) {
+        JsonObject application = new JsonObject();
+        application.addProperty("name", project + "-" + version + "-" + build + ".jar");
+        application.addProperty("sha256", sha256);
+        JsonObject downloads = new JsonObject();
+        downloads.add("application", application);
+        return downloads;
+    }
+
+    private JsonObject purpurProject() {
+        JsonObject json = new JsonObject();
+        json.addProperty("project", "purpur");
+        json.add("versions", strings(VERSIONS));
+        return json;
+    }
+
+    private JsonObject purpurBuilds(String version, boolean detailed) {
+        JsonArray all = new JsonArray();
+        for (int build = 1; build <= builds; build++) {
+            all.add(detailed ? purpurBuild(version, build) : new JsonPrimitive(String.valueOf(build)));
+        }
+        JsonObject list = new JsonObject();
+        list.add("all", all);
+        list.addProperty("latest", String.valueOf(builds));
+        JsonObject json = new JsonObject();
+        json.addProperty("project", "purpur");
+        json.addProperty("version", version);
+        json.add("builds", list);
+        return json;
+    }
+
+    private JsonObject purpurBuild(String version, int build) {
+        JsonObject commit = new JsonObject();
+        commit.addProperty("author", "stand-in");
+        commit.addProperty("description", "Change " + build);
+        commit.addProperty("hash", Integer.toHexString(build * 7919));
+        JsonArray commits = new JsonArray();
+        commits.add(commit);
+
+        JsonObject json = new JsonObject();
+        json.addProperty("project", "purpur");
+        json.addProperty("version", version);
+        json.addProperty("build", String.valueOf(build));
+        json.add("commits", commits);
+        json.addProperty("md5", md5);
+        json.addProperty("result", "SUCCESS");
+        json.addProperty("timestamp", 1748779200000L + build);
+        return json;
+    }
+
+    private static JsonArray strings(List<String> values) {
+        JsonArray array = new JsonArray();
+        values.forEach(array::add);
+        return array;
+    }
+
+    private static void sendJson(HttpExchange exchange, JsonObject json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void sleep(int ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String hex(String algorithm, byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance(algorithm).digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
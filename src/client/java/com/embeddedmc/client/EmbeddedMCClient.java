@@ -3,6 +3,7 @@ package com.embeddedmc.client;
 import com.embeddedmc.EmbeddedMC;
 import com.embeddedmc.client.gui.ConsoleScreen;
 import com.embeddedmc.config.ServerInstance;
+import com.embeddedmc.download.DownloadScheduler;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
@@ -42,6 +43,11 @@ public class EmbeddedMCClient implements ClientModInitializer {
             while (consoleKeyBinding.wasPressed()) {
                 openConsole(client);
             }
+            PauseController.tick(client);
+
+            // Keep background downloads from competing with the game connection
+            DownloadScheduler.setPaused(EmbeddedMC.getInstance().getConfig().isPauseDownloadsInGame()
+                    && client.world != null && client.getCurrentServerEntry() != null);
         });
     }
 
@@ -0,0 +1,125 @@
+package com.embeddedmc.client;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ModConfig;
+import com.embeddedmc.server.EmbeddedServer;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerAddress;
+import net.minecraft.client.network.ServerInfo;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * Gives embedded servers singleplayer-style pausing: while a pausing screen
+ * (pause menu, console, file browser...) is open and we are the only player,
+ * world ticking on the server is frozen.
+ * Also drives managed autosave - saves happen when the game is paused or the
+ * player stands still instead of in the middle of gameplay.
+ */
+@Environment(EnvType.CLIENT)
+public class PauseController {
+    private static EmbeddedServer frozenServer;
+
+    // Standing-still detection for autosave
+    private static Vec3d lastPlayerPos;
+    private static long stillSince;
+    private static boolean savedWhileStill;
+
+    /**
+     * Called by GameMenuScreenMixin when the pause menu opens.
+     */
+    public static void onPauseMenuOpened(MinecraftClient client) {
+        ModConfig config = EmbeddedMC.getInstance().getConfig();
+        EmbeddedServer server = getConnectedServer(client);
+        if (server == null) {
+            return;
+        }
+
+        // Good moment to save - nobody notices a hitch in the pause menu
+        if (config.isManagedAutosave()
+                && server.getMillisSinceLastSave() >= config.getAutosaveMinIntervalSeconds() * 1000L) {
+            server.requestSave("pause menu");
+        }
+
+        if (frozenServer != null || !config.isFreezeOnPause() || server.getOnlinePlayers() != 1) {
+            return;
+        }
+
+        if (server.setTickFrozen(true)) {
+            frozenServer = server;
+            EmbeddedMC.LOGGER.info("Paused server {}", server.getInstance().getName());
+        }
+    }
+
+    /**
+     * Called every client tick - unfreezes once the player is back in the game
+     * and saves when the player has been standing still for a while.
+     */
+    public static void tick(MinecraftClient client) {
+        checkStandingStill(client);
+
+        if (frozenServer == null) {
+            return;
+        }
+
+        boolean paused = client.currentScreen != null && client.currentScreen.shouldPause()
+                && getConnectedServer(client) == frozenServer;
+        boolean someoneElseJoined = frozenServer.getOnlinePlayers() > 1;
+
+        if (!paused || someoneElseJoined || !frozenServer.isRunning()) {
+            frozenServer.setTickFrozen(false);
+            EmbeddedMC.LOGGER.info("Resumed server {}", frozenServer.getInstance().getName());
+            frozenServer = null;
+        }
+    }
+
+    private static void checkStandingStill(MinecraftClient client) {
+        ModConfig config = EmbeddedMC.getInstance().getConfig();
+        if (client.player == null || !config.isManagedAutosave()) {
+            lastPlayerPos = null;
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Vec3d pos = new Vec3d(client.player.getX(), client.player.getY(), client.player.getZ());
+        if (lastPlayerPos == null || pos.squaredDistanceTo(lastPlayerPos) > 0.0001) {
+            lastPlayerPos = pos;
+            stillSince = now;
+            savedWhileStill = false;
+            return;
+        }
+
+        if (savedWhileStill || now - stillSince < config.getAutosaveIdleSeconds() * 1000L) {
+            return;
+        }
+
+        EmbeddedServer server = getConnectedServer(client);
+        if (server == null) {
+            savedWhileStill = true;
+        } else if (server.getMillisSinceLastSave() >= config.getAutosaveMinIntervalSeconds() * 1000L) {
+            // One save per standing-still period
+            savedWhileStill = server.requestSave("player idle");
+        }
+    }
+
+    /**
+     * The embedded server the client is currently connected to, if any.
+     */
+    public static EmbeddedServer getConnectedServer(MinecraftClient client) {
+        if (client.world == null || EmbeddedMC.getInstance() == null) {
+            return null;
+        }
+
+        ServerInfo serverInfo = client.getCurrentServerEntry();
+        if (serverInfo == null) {
+            return null;
+        }
+
+        ServerAddress address = ServerAddress.parse(serverInfo.address);
+        if (!address.getAddress().equals("localhost") && !address.getAddress().equals("127.0.0.1")) {
+            return null;
+        }
+        return EmbeddedMC.getInstance().getServerManager().getServerByPort(address.getPort());
+    }
+}
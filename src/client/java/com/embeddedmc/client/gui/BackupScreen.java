@@ -0,0 +1,234 @@
+package com.embeddedmc.client.gui;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ServerInstance;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.ConfirmScreen;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.widget.AlwaysSelectedEntryListWidget;
+import net.minecraft.client.gui.widget.ButtonWidget;
+import net.minecraft.text.Text;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Backup snapshots of an instance, newest first. A snapshot can be restored
+ * (the server is stopped and its worlds replaced) or a new one taken.
+ */
+public class BackupScreen extends Screen {
+    private static final DateTimeFormatter SNAPSHOT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss[-SSS]");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Screen parent;
+    private final ServerInstance instance;
+
+    private SnapshotListWidget snapshotList;
+    private ButtonWidget restoreButton;
+    private ButtonWidget backupButton;
+    private List<String> snapshots;
+    private boolean failed = false;
+    private boolean busy = false;
+    private Text status;
+
+    public BackupScreen(Screen parent, ServerInstance instance) {
+        super(Text.translatable("embeddedmc.backup.title", instance.getName()));
+        this.parent = parent;
+        this.instance = instance;
+    }
+
+    @Override
+    protected void init() {
+        int listWidth = this.width - 80;
+        int listHeight = this.height - 100;
+
+        this.snapshotList = new SnapshotListWidget(this.client, listWidth, listHeight, 40, 24);
+        this.snapshotList.setX(40);
+        this.addSelectableChild(this.snapshotList);
+
+        if (snapshots != null) {
+            populate();
+        } else {
+            loadSnapshots();
+        }
+
+        // Restore button
+        this.restoreButton = this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.backup.restore"),
+                button -> {
+                    SnapshotListWidget.SnapshotEntry selected = snapshotList.getSelectedOrNull();
+                    if (selected != null) {
+                        confirmRestore(selected.name);
+                    }
+                }
+        ).dimensions(this.width / 2 - 155, this.height - 52, 100, 20).build());
+
+        // Back up now button
+        this.backupButton = this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.backup.create"),
+                button -> createBackup()
+        ).dimensions(this.width / 2 - 50, this.height - 52, 100, 20).build());
+
+        // Back button
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.back"),
+                button -> this.client.setScreen(parent)
+        ).dimensions(this.width / 2 + 55, this.height - 52, 100, 20).build());
+    }
+
+    private void loadSnapshots() {
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return EmbeddedMC.getInstance().getServerManager().listBackups(instance.getId());
+            } catch (Exception e) {
+                EmbeddedMC.LOGGER.error("Failed to list backups of instance {}", instance.getId(), e);
+                return null;
+            }
+        }).thenAccept(result -> {
+            if (this.client != null) {
+                this.client.execute(() -> {
+                    snapshots = result;
+                    failed = result == null;
+                    populate();
+                });
+            }
+        });
+    }
+
+    private void populate() {
+        snapshotList.clearEntries();
+        if (snapshots != null) {
+            for (String name : snapshots) {
+                snapshotList.addEntry(new SnapshotListWidget.SnapshotEntry(name));
+            }
+        }
+    }
+
+    private void createBackup() {
+        busy = true;
+        status = Text.translatable("embeddedmc.backup.creating");
+        EmbeddedMC.getInstance().getServerManager().backupWorld(instance.getId()).thenAccept(result -> {
+            if (this.client != null) {
+                this.client.execute(() -> {
+                    busy = false;
+                    status = result != null ? null : Text.translatable("embeddedmc.backup.create_failed");
+                    loadSnapshots();
+                });
+            }
+        });
+    }
+
+    private void confirmRestore(String name) {
+        this.client.setScreen(new ConfirmScreen(
+                confirmed -> {
+                    if (confirmed) {
+                        restore(name);
+                    }
+                    this.client.setScreen(this);
+                },
+                Text.translatable("embeddedmc.confirm.restore_backup"),
+                Text.translatable("embeddedmc.confirm.restore_backup_message", instance.getName(), formatName(name))
+        ));
+    }
+
+    private void restore(String name) {
+        busy = true;
+        status = Text.translatable("embeddedmc.backup.restoring");
+        EmbeddedMC.getInstance().getServerManager().restoreBackup(instance.getId(), name).thenAccept(restored -> {
+            if (this.client != null) {
+                this.client.execute(() -> {
+                    busy = false;
+                    status = restored
+                            ? Text.translatable("embeddedmc.backup.restored", formatName(name))
+                            : Text.translatable("embeddedmc.backup.restore_failed");
+                });
+            }
+        });
+    }
+
+    private void updateButtons() {
+        restoreButton.active = !busy && snapshotList.getSelectedOrNull() != null;
+        backupButton.active = !busy;
+    }
+
+    static String formatName(String name) {
+        try {
+            return LocalDateTime.parse(name, SNAPSHOT_NAME).format(DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            return name;
+        }
+    }
+
+    @Override
+    public void render(DrawContext context, int mouseX, int mouseY, float delta) {
+        // The list has no selection callback
+        updateButtons();
+        super.render(context, mouseX, mouseY, delta);
+
+        // Title
+        context.drawCenteredTextWithShadow(this.textRenderer, this.title, this.width / 2, 15, 0xFFFFFFFF);
+
+        // Status / loading state
+        int retention = EmbeddedMC.getInstance().getConfig().getBackupRetention();
+        Text hint = status != null ? status
+                : failed ? Text.translatable("embeddedmc.backup.failed")
+                : snapshots == null ? Text.translatable("embeddedmc.backup.loading")
+                : snapshots.isEmpty() ? Text.translatable("embeddedmc.backup.none")
+                : retention > 0 ? Text.translatable("embeddedmc.backup.retention", retention)
+                : Text.translatable("embeddedmc.backup.retention_all");
+        context.drawCenteredTextWithShadow(this.textRenderer, hint, this.width / 2, 28, failed ? 0xFFFF5555 : 0xFF888888);
+
+        // Snapshot list
+        this.snapshotList.render(context, mouseX, mouseY, delta);
+    }
+
+    @Override
+    public void close() {
+        this.client.setScreen(parent);
+    }
+
+    public static class SnapshotListWidget extends AlwaysSelectedEntryListWidget<SnapshotListWidget.SnapshotEntry> {
+
+        public SnapshotListWidget(MinecraftClient client, int width, int height, int y, int itemHeight) {
+            super(client, width, height, y, itemHeight);
+        }
+
+        @Override
+        public int addEntry(SnapshotEntry entry) {
+            return super.addEntry(entry);
+        }
+
+        @Override
+        public void clearEntries() {
+            super.clearEntries();
+        }
+
+        @Override
+        public int getRowWidth() {
+            return this.width - 20;
+        }
+
+        public static class SnapshotEntry extends AlwaysSelectedEntryListWidget.Entry<SnapshotEntry> {
+            private final String name;
+
+            public SnapshotEntry(String name) {
+                this.name = name;
+            }
+
+            @Override
+            public void render(DrawContext context, int mouseX, int mouseY, boolean hovered, float deltaTicks) {
+                MinecraftClient client = MinecraftClient.getInstance();
+                context.drawTextWithShadow(client.textRenderer, formatName(name), this.getContentX() + 5, this.getContentY() + 6, 0xFFFFFFFF);
+            }
+
+            @Override
+            public Text getNarration() {
+                return Text.literal(formatName(name));
+            }
+        }
+    }
+}
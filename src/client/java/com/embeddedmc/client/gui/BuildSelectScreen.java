@@ -0,0 +1,250 @@
+package com.embeddedmc.client.gui;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.download.BuildInfo;
+import com.embeddedmc.download.DownloadManager;
+import com.embeddedmc.server.ServerType;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.Click;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.widget.AlwaysSelectedEntryListWidget;
+import net.minecraft.client.gui.widget.ButtonWidget;
+import net.minecraft.text.Text;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+
+/**
+ * Lists the builds of a server version with their changes so a known-good
+ * build can be pinned. Build -1 means "always the latest".
+ */
+public class BuildSelectScreen extends Screen {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
+
+    private final Screen parent;
+    private final ServerType type;
+    private final String version;
+    private final int currentBuild;
+    private final int installedBuild;
+    private final IntConsumer onSelect;
+
+    private BuildListWidget buildList;
+    private List<BuildInfo> builds;
+    private boolean failed = false;
+
+    public BuildSelectScreen(Screen parent, ServerType type, String version, int currentBuild, int installedBuild, IntConsumer onSelect) {
+        super(Text.translatable("embeddedmc.build.title"));
+        this.parent = parent;
+        this.type = type;
+        this.version = version;
+        this.currentBuild = currentBuild;
+        this.installedBuild = installedBuild;
+        this.onSelect = onSelect;
+    }
+
+    @Override
+    protected void init() {
+        int listWidth = this.width - 80;
+        int listHeight = this.height - 100;
+
+        this.buildList = new BuildListWidget(this.client, listWidth, listHeight, 40, 24);
+        this.buildList.setX(40);
+        this.addSelectableChild(this.buildList);
+
+        if (builds != null) {
+            populate();
+        } else {
+            loadBuilds();
+        }
+
+        // Select button
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.version.select"),
+                button -> selectBuild()
+        ).dimensions(this.width / 2 - 105, this.height - 52, 100, 20).build());
+
+        // Cancel button
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.cancel"),
+                button -> this.client.setScreen(parent)
+        ).dimensions(this.width / 2 + 5, this.height - 52, 100, 20).build());
+    }
+
+    private void loadBuilds() {
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return DownloadManager.getBuilds(type, version);
+            } catch (Exception e) {
+                EmbeddedMC.LOGGER.error("Failed to load builds for {} {}", type.getDisplayName(), version, e);
+                return null;
+            }
+        }).thenAccept(result -> {
+            if (this.client != null) {
+                this.client.execute(() -> {
+                    builds = result;
+                    failed = result == null;
+                    populate();
+                });
+            }
+        });
+    }
+
+    private void populate() {
+        buildList.clearEntries();
+        BuildListWidget.BuildEntry latest = new BuildListWidget.BuildEntry(null, this);
+        buildList.addEntry(latest);
+        if (currentBuild <= 0) {
+            buildList.setSelected(latest);
+        }
+
+        if (builds != null) {
+            for (BuildInfo build : builds) {
+                BuildListWidget.BuildEntry entry = new BuildListWidget.BuildEntry(build, this);
+                buildList.addEntry(entry);
+                if (build.build() == currentBuild) {
+                    buildList.setSelected(entry);
+                }
+            }
+        }
+    }
+
+    private void selectBuild() {
+        BuildListWidget.BuildEntry selected = buildList.getSelectedOrNull();
+        if (selected != null) {
+            onSelect.accept(selected.getBuildNumber());
+        }
+        this.client.setScreen(parent);
+    }
+
+    void selectAndClose(int build) {
+        onSelect.accept(build);
+        this.client.setScreen(parent);
+    }
+
+    int getInstalledBuild() {
+        return installedBuild;
+    }
+
+    @Override
+    public void render(DrawContext context, int mouseX, int mouseY, float delta) {
+        super.render(context, mouseX, mouseY, delta);
+
+        // Title
+        context.drawCenteredTextWithShadow(this.textRenderer,
+                Text.translatable("embeddedmc.build.title_version", type.getDisplayName(), version),
+                this.width / 2, 15, 0xFFFFFFFF);
+
+        // Hint / loading state
+        Text hint = failed ? Text.translatable("embeddedmc.build.failed")
+                : builds == null ? Text.translatable("embeddedmc.build.loading")
+                : Text.translatable("embeddedmc.version.hint");
+        context.drawCenteredTextWithShadow(this.textRenderer, hint, this.width / 2, 28, failed ? 0xFFFF5555 : 0xFF888888);
+
+        // Build list
+        this.buildList.render(context, mouseX, mouseY, delta);
+    }
+
+    @Override
+    public void close() {
+        this.client.setScreen(parent);
+    }
+
+    public static class BuildListWidget extends AlwaysSelectedEntryListWidget<BuildListWidget.BuildEntry> {
+
+        public BuildListWidget(MinecraftClient client, int width, int height, int y, int itemHeight) {
+            super(client, width, height, y, itemHeight);
+        }
+
+        @Override
+        public int addEntry(BuildEntry entry) {
+            return super.addEntry(entry);
+        }
+
+        @Override
+        public void clearEntries() {
+            super.clearEntries();
+        }
+
+        @Override
+        public int getRowWidth() {
+            return this.width - 20;
+        }
+
+        public static class BuildEntry extends AlwaysSelectedEntryListWidget.Entry<BuildEntry> {
+            private final BuildInfo build; // null = latest
+            private final BuildSelectScreen parent;
+            private long lastClickTime = 0;
+
+            public BuildEntry(BuildInfo build, BuildSelectScreen parent) {
+                this.build = build;
+                this.parent = parent;
+            }
+
+            public int getBuildNumber() {
+                return build != null ? build.build() : -1;
+            }
+
+            @Override
+            public boolean mouseClicked(Click click, boolean handled) {
+                if (click.button() == 0) {
+                    long now = System.currentTimeMillis();
+                    if (now - lastClickTime < 250) {
+                        // Double click - select and close
+                        parent.selectAndClose(getBuildNumber());
+                        return true;
+                    }
+                    lastClickTime = now;
+                }
+                return super.mouseClicked(click, handled);
+            }
+
+            @Override
+            public void render(DrawContext context, int mouseX, int mouseY, boolean hovered, float deltaTicks) {
+                MinecraftClient client = MinecraftClient.getInstance();
+
+                int x = this.getContentX();
+                int y = this.getContentY();
+                int width = this.getContentWidth();
+
+                if (build == null) {
+                    context.drawTextWithShadow(client.textRenderer, Text.translatable("embeddedmc.build.latest"), x + 5, y + 2, 0xFF55FF55);
+                    context.drawTextWithShadow(client.textRenderer, Text.translatable("embeddedmc.build.latest_hint"), x + 5, y + 12, 0xFF888888);
+                    return;
+                }
+
+                // First line: build number, date, channel and whether it is installed
+                String title = "#" + build.build();
+                if (build.time() > 0) {
+                    title += "  " + DATE_FORMAT.format(Instant.ofEpochMilli(build.time()));
+                }
+                context.drawTextWithShadow(client.textRenderer, title, x + 5, y + 2, 0xFFFFFFFF);
+                int tagX = x + 10 + client.textRenderer.getWidth(title);
+                if (build.channel() != null && !build.channel().equals("default")) {
+                    context.drawTextWithShadow(client.textRenderer, build.channel(), tagX, y + 2, 0xFFFFAA00);
+                    tagX += client.textRenderer.getWidth(build.channel()) + 5;
+                }
+                if (build.build() == parent.getInstalledBuild()) {
+                    context.drawTextWithShadow(client.textRenderer, Text.translatable("embeddedmc.build.installed"), tagX, y + 2, 0xFF55FF55);
+                }
+
+                // Second line: latest change, cut to the row
+                String change = build.changes().isEmpty() ? "" : build.changes().get(0);
+                if (build.changes().size() > 1) {
+                    change += " (+" + (build.changes().size() - 1) + ")";
+                }
+                context.drawTextWithShadow(client.textRenderer,
+                        client.textRenderer.trimToWidth(change, width - 10), x + 5, y + 12, 0xFF888888);
+            }
+
+            @Override
+            public Text getNarration() {
+                return Text.literal(build != null ? "#" + build.build() : "latest");
+            }
+        }
+    }
+}
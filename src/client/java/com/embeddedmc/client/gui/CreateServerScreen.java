@@ -2,8 +2,10 @@ package com.embeddedmc.client.gui;
 
 import com.embeddedmc.EmbeddedMC;
 import com.embeddedmc.config.ServerInstance;
+import com.embeddedmc.download.DownloadManager;
 import com.embeddedmc.download.PaperAPI;
 import com.embeddedmc.download.PurpurAPI;
+import com.embeddedmc.download.SpigotBuildTools;
 import com.embeddedmc.server.ServerType;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
@@ -29,6 +31,7 @@ public class CreateServerScreen extends Screen {
     private ButtonWidget paperButton;
     private ButtonWidget purpurButton;
     private ButtonWidget foliaButton;
+    private ButtonWidget spigotButton;
     private ButtonWidget versionButton;
 
     public CreateServerScreen(Screen parent) {
@@ -49,10 +52,10 @@ public class CreateServerScreen extends Screen {
         this.nameField.setMaxLength(32);
         this.addSelectableChild(this.nameField);
 
-        // Server type buttons (3 buttons side by side)
+        // Server type buttons (4 buttons side by side)
         int typeButtonWidth = 64;
         int typeButtonSpacing = 4;
-        int totalTypeWidth = typeButtonWidth * 3 + typeButtonSpacing * 2;
+        int totalTypeWidth = typeButtonWidth * 4 + typeButtonSpacing * 3;
         int typeStartX = centerX - totalTypeWidth / 2;
 
         this.paperButton = ButtonWidget.builder(
@@ -73,6 +76,12 @@ public class CreateServerScreen extends Screen {
         ).dimensions(typeStartX + (typeButtonWidth + typeButtonSpacing) * 2, startY + spacing, typeButtonWidth, 20).build();
         this.addDrawableChild(this.foliaButton);
 
+        this.spigotButton = ButtonWidget.builder(
+                Text.literal("Spigot"),
+                button -> selectServerType(ServerType.SPIGOT)
+        ).dimensions(typeStartX + (typeButtonWidth + typeButtonSpacing) * 3, startY + spacing, typeButtonWidth, 20).build();
+        this.addDrawableChild(this.spigotButton);
+
         // Load versions
         loadVersions();
 
@@ -131,22 +140,21 @@ public class CreateServerScreen extends Screen {
     private void loadVersions() {
         CompletableFuture.runAsync(() -> {
             try {
-                if (selectedType.hasApi()) {
-                    availableVersions = switch (selectedType) {
-                        case PAPER, FOLIA -> PaperAPI.getVersions(selectedType);
-                        case PURPUR -> PurpurAPI.getVersions();
-                        default -> List.of("1.21.11");
-                    };
-                    if (!availableVersions.isEmpty()) {
-                        selectedVersion = availableVersions.get(0);
-                        // Update button on main thread
-                        if (client != null) {
-                            client.execute(() -> {
-                                if (versionButton != null) {
-                                    versionButton.setMessage(Text.literal(selectedVersion));
-                                }
-                            });
-                        }
+                availableVersions = switch (selectedType) {
+                    case PAPER, FOLIA -> PaperAPI.getVersions(selectedType);
+                    case PURPUR -> PurpurAPI.getVersions();
+                    case SPIGOT -> SpigotBuildTools.getVersions();
+                };
+                if (!availableVersions.isEmpty()) {
+                    selectedVersion = availableVersions.get(0);
+                    DownloadManager.schedulePrefetch(selectedType, selectedVersion);
+                    // Update button on main thread
+                    if (client != null) {
+                        client.execute(() -> {
+                            if (versionButton != null) {
+                                versionButton.setMessage(Text.literal(selectedVersion));
+                            }
+                        });
                     }
                 }
             } catch (Exception e) {
@@ -170,6 +178,7 @@ public class CreateServerScreen extends Screen {
                 version -> {
                     selectedVersion = version;
                     versionButton.setMessage(Text.literal(selectedVersion));
+                    DownloadManager.schedulePrefetch(selectedType, selectedVersion);
                 }
             ));
         }
@@ -230,7 +239,7 @@ public class CreateServerScreen extends Screen {
             case PAPER -> paperButton;
             case PURPUR -> purpurButton;
             case FOLIA -> foliaButton;
-            default -> null;
+            case SPIGOT -> spigotButton;
         };
 
         if (selectedButton != null) {
@@ -13,6 +13,7 @@ public class DownloadProgressScreen extends Screen {
 
     private String statusText = "Preparing download...";
     private int progress = 0;
+    private String speedText = "";
     private boolean downloading = false;
     private boolean complete = false;
     private boolean error = false;
@@ -47,6 +48,7 @@ public class DownloadProgressScreen extends Screen {
                 this.client.execute(() -> {
                     this.progress = progress.getPercent();
                     this.statusText = progress.status();
+                    this.speedText = formatSpeed(progress);
 
                     if (progress.downloaded() < 0) {
                         this.error = true;
@@ -59,6 +61,7 @@ public class DownloadProgressScreen extends Screen {
                     if (success) {
                         this.complete = true;
                         this.statusText = "Download complete!";
+                        this.speedText = "";
 
                         // Accept EULA
                         try {
@@ -79,6 +82,20 @@ public class DownloadProgressScreen extends Screen {
         });
     }
 
+    private static String formatSpeed(DownloadManager.DownloadProgress progress) {
+        if (progress.bytesPerSecond() <= 0) {
+            return "";
+        }
+        String speed = String.format("%.1f MB/s", progress.bytesPerSecond() / 1024.0 / 1024.0);
+        long eta = progress.etaSeconds();
+        if (eta < 0) {
+            return speed;
+        }
+        return eta >= 60
+                ? String.format("%s - %dm %ds left", speed, eta / 60, eta % 60)
+                : String.format("%s - %ds left", speed, eta);
+    }
+
     @Override
     public void render(DrawContext context, int mouseX, int mouseY, float delta) {
         super.render(context, mouseX, mouseY, delta);
@@ -127,6 +144,11 @@ public class DownloadProgressScreen extends Screen {
         // Status text
         context.drawCenteredTextWithShadow(this.textRenderer, statusText, centerX, barY + barHeight + 20,
                 error ? 0xFFFF5555 : 0xFFAAAAAA);
+
+        // Throughput and time left
+        if (!speedText.isEmpty()) {
+            context.drawCenteredTextWithShadow(this.textRenderer, speedText, centerX, barY + barHeight + 35, 0xFF888888);
+        }
     }
 
     @Override
@@ -78,6 +78,12 @@ public class FileListScreen extends Screen {
                 }
         ).dimensions(10, 5, 80, 20).build());
 
+        // World analysis (top-right)
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.analyze_world"),
+                button -> this.client.setScreen(new WorldAnalysisScreen(this, instance))
+        ).dimensions(this.width - 110, 5, 100, 20).build());
+
         // Button row at bottom
         int buttonY = this.height - 30;
         int buttonWidth = 60;
@@ -163,6 +163,7 @@ public class ServerListWidget extends AlwaysSelectedEntryListWidget<ServerListWi
         private Text getStatusText() {
             return switch (instance.getStatus()) {
                 case RUNNING -> Text.translatable("embeddedmc.status.running");
+                case HIBERNATED -> Text.translatable("embeddedmc.status.hibernated");
                 case STARTING -> Text.translatable("embeddedmc.status.starting");
                 case STOPPING -> Text.translatable("embeddedmc.status.stopping");
                 case ERROR -> Text.translatable("embeddedmc.status.error").formatted(Formatting.RED);
@@ -173,6 +174,7 @@ public class ServerListWidget extends AlwaysSelectedEntryListWidget<ServerListWi
         private int getStatusColor() {
             return switch (instance.getStatus()) {
                 case RUNNING -> 0xFF55FF55;
+                case HIBERNATED -> 0xFF55AAFF;
                 case STARTING, STOPPING -> 0xFFFFFF55;
                 case ERROR -> 0xFFFF5555;
                 default -> 0xFFAAAAAA;
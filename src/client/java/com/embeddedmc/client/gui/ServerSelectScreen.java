@@ -3,18 +3,19 @@ package com.embeddedmc.client.gui;
 import com.embeddedmc.EmbeddedMC;
 import com.embeddedmc.config.ServerInstance;
 import com.embeddedmc.download.DownloadManager;
+import com.embeddedmc.server.InstanceTrash;
 import com.embeddedmc.server.ServerManager;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.text.Text;
 
-import java.nio.file.Files;
 import java.util.List;
 
 public class ServerSelectScreen extends Screen {
     private final Screen parent;
     private ServerListWidget serverList;
+    private ButtonWidget undoDeleteButton;
 
     public ServerSelectScreen(Screen parent) {
         super(Text.translatable("embeddedmc.screen.server_select"));
@@ -42,6 +43,9 @@ public class ServerSelectScreen extends Screen {
         // Refresh list
         refreshServerList();
 
+        // Likely the first instance someone creates - have its jar ready
+        DownloadManager.prefetchClientVersion();
+
         // Buttons at bottom (only Create and Back - other actions are in server entries)
         int buttonY = this.height - 52;
         int buttonWidth = 100;
@@ -60,6 +64,14 @@ public class ServerSelectScreen extends Screen {
                 Text.translatable("embeddedmc.button.back"),
                 button -> this.client.setScreen(parent)
         ).dimensions(startX + buttonWidth + spacing, buttonY, buttonWidth, 20).build());
+
+        // Undo delete button (top right, only visible during the undo window)
+        this.undoDeleteButton = ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.undo_delete"),
+                button -> undoDelete()
+        ).dimensions(this.width - 110, 6, 100, 20).build();
+        this.undoDeleteButton.visible = getUndoableDeletion() != null;
+        this.addDrawableChild(this.undoDeleteButton);
     }
 
     public void refreshServerList() {
@@ -100,14 +112,20 @@ public class ServerSelectScreen extends Screen {
             return;
         }
 
-        // Check if server JAR exists
-        if (!Files.exists(instance.getServerJar())) {
+        // The list may only hold the manifest fields; the build pin lives in instance.json
+        ServerInstance loaded = manager.getInstance(instance.getId());
+        if (loaded == null) {
+            return;
+        }
+
+        // Check if server JAR exists and is the pinned build
+        if (loaded.needsServerJar()) {
             // Need to download first - after download user can start manually
-            this.client.setScreen(new DownloadProgressScreen(this, instance));
+            this.client.setScreen(new DownloadProgressScreen(this, loaded));
             return;
         }
 
-        startAndConnect(instance);
+        startAndConnect(loaded);
     }
 
     private void startAndConnect(ServerInstance instance) {
@@ -131,6 +149,9 @@ public class ServerSelectScreen extends Screen {
 
     private void connectToServer(ServerInstance instance) {
         if (this.client != null) {
+            // Thaw a hibernated server (SIGCONT) - takes milliseconds instead of a restart
+            EmbeddedMC.getInstance().getServerManager().resumeServer(instance.getId());
+
             // Connect to localhost:port
             net.minecraft.client.network.ServerInfo serverInfo = new net.minecraft.client.network.ServerInfo(
                     instance.getName(),
@@ -162,20 +183,46 @@ public class ServerSelectScreen extends Screen {
     }
 
     public void openSettings(ServerInstance instance) {
-        this.client.setScreen(new ServerSettingsScreen(this, instance));
+        // Loads the full settings of an instance the list only has from the manifest
+        ServerInstance loaded = EmbeddedMC.getInstance().getServerManager().getInstance(instance.getId());
+        if (loaded != null) {
+            this.client.setScreen(new ServerSettingsScreen(this, loaded));
+        }
     }
 
     public void deleteServer(ServerInstance instance) {
+        // Returns immediately - files are moved to the trash and removed in the background
         EmbeddedMC.getInstance().getServerManager().deleteInstance(instance.getId());
         refreshServerList();
     }
 
+    private InstanceTrash.Deletion getUndoableDeletion() {
+        for (InstanceTrash.Deletion deletion : EmbeddedMC.getInstance().getServerManager().getPendingDeletions()) {
+            if (deletion.canUndo()) {
+                return deletion;
+            }
+        }
+        return null;
+    }
+
+    private void undoDelete() {
+        InstanceTrash.Deletion deletion = getUndoableDeletion();
+        if (deletion != null && EmbeddedMC.getInstance().getServerManager().undoDelete(deletion.getInstance().getId())) {
+            refreshServerList();
+        }
+        undoDeleteButton.visible = getUndoableDeletion() != null;
+    }
+
     private int tickCounter = 0;
 
     @Override
     public void tick() {
         super.tick();
 
+        if (undoDeleteButton != null) {
+            undoDeleteButton.visible = getUndoableDeletion() != null;
+        }
+
         // Refresh status every 60 ticks (3 seconds) to update status indicators
         tickCounter++;
         if (tickCounter >= 60) {
@@ -193,6 +240,18 @@ public class ServerSelectScreen extends Screen {
 
         // Render server list
         this.serverList.render(context, mouseX, mouseY, delta);
+
+        // Background deletion progress
+        int statusY = 10;
+        for (InstanceTrash.Deletion deletion : EmbeddedMC.getInstance().getServerManager().getPendingDeletions()) {
+            if (deletion.getState() == InstanceTrash.State.PURGING) {
+                int percent = Math.max(deletion.getPercent(), 0);
+                context.drawTextWithShadow(this.textRenderer,
+                        Text.translatable("embeddedmc.delete.progress", deletion.getInstance().getName(), percent),
+                        10, statusY, 0xFF888888);
+                statusY += 10;
+            }
+        }
     }
 
     @Override
@@ -3,6 +3,7 @@ package com.embeddedmc.client.gui;
 import com.embeddedmc.EmbeddedMC;
 import com.embeddedmc.config.ServerInstance;
 import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.ConfirmScreen;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.client.gui.widget.SliderWidget;
@@ -17,6 +18,7 @@ public class ServerSettingsScreen extends Screen {
     private TextFieldWidget portField;
     private int selectedRam;
     private int selectedSlots;
+    private int selectedBuild;
 
     public ServerSettingsScreen(Screen parent, ServerInstance instance) {
         super(Text.translatable("embeddedmc.screen.server_settings"));
@@ -24,6 +26,7 @@ public class ServerSettingsScreen extends Screen {
         this.instance = instance;
         this.selectedRam = instance.getRamMB();
         this.selectedSlots = instance.getMaxPlayers();
+        this.selectedBuild = instance.getBuild();
     }
 
     @Override
@@ -77,26 +80,65 @@ public class ServerSettingsScreen extends Screen {
             }
         });
 
+        // Clone / Mark Pristine / Reset World (three buttons side by side)
+        int actionWidth = 64;
+        int actionSpacing = 4;
+        int actionX = centerX - fieldWidth / 2;
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.clone"),
+                button -> cloneServer()
+        ).dimensions(actionX, startY + spacing * 4, actionWidth, 20).build());
+
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.mark_pristine"),
+                button -> EmbeddedMC.getInstance().getServerManager().savePristineWorld(instance.getId())
+        ).dimensions(actionX + actionWidth + actionSpacing, startY + spacing * 4, actionWidth, 20).build());
+
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.reset_world"),
+                button -> confirmResetWorld()
+        ).dimensions(actionX + (actionWidth + actionSpacing) * 2, startY + spacing * 4, actionWidth, 20).build());
+
         // Server info (read-only)
         // Type and version display
 
-        // Plugins button
+        // Plugins button and build pin
+        int halfWidth = (fieldWidth - 4) / 2;
         this.addDrawableChild(ButtonWidget.builder(
                 Text.translatable("embeddedmc.button.plugins"),
                 button -> this.client.setScreen(new PluginManagerScreen(this, instance))
-        ).dimensions(centerX - fieldWidth / 2, startY + spacing * 5, fieldWidth, 20).build());
-
-        // Files button (Config Editor)
+        ).dimensions(centerX - fieldWidth / 2, startY + spacing * 5, halfWidth, 20).build());
+
+        ButtonWidget buildButton = this.addDrawableChild(ButtonWidget.builder(
+                selectedBuild > 0
+                        ? Text.translatable("embeddedmc.button.build", "#" + selectedBuild)
+                        : Text.translatable("embeddedmc.button.build", Text.translatable("embeddedmc.build.latest")),
+                button -> this.client.setScreen(new BuildSelectScreen(this, instance.getType(), instance.getMcVersion(),
+                        selectedBuild, instance.getInstalledBuild(), build -> selectedBuild = build))
+        ).dimensions(centerX + fieldWidth / 2 - halfWidth, startY + spacing * 5, halfWidth, 20).build());
+        buildButton.active = instance.getType().hasApi();
+
+        // Files button (Config Editor) and world analysis
         this.addDrawableChild(ButtonWidget.builder(
                 Text.translatable("embeddedmc.button.files"),
                 button -> this.client.setScreen(new FileListScreen(this, instance))
-        ).dimensions(centerX - fieldWidth / 2, startY + spacing * 6, fieldWidth, 20).build());
+        ).dimensions(centerX - fieldWidth / 2, startY + spacing * 6, halfWidth, 20).build());
+
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.analyze_world"),
+                button -> this.client.setScreen(new WorldAnalysisScreen(this, instance))
+        ).dimensions(centerX + fieldWidth / 2 - halfWidth, startY + spacing * 6, halfWidth, 20).build());
 
-        // Console button
+        // Console and backups
         this.addDrawableChild(ButtonWidget.builder(
                 Text.translatable("embeddedmc.button.console"),
                 button -> this.client.setScreen(new ConsoleScreen(this, instance))
-        ).dimensions(centerX - fieldWidth / 2, startY + spacing * 7, fieldWidth, 20).build());
+        ).dimensions(centerX - fieldWidth / 2, startY + spacing * 7, halfWidth, 20).build());
+
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.backups"),
+                button -> this.client.setScreen(new BackupScreen(this, instance))
+        ).dimensions(centerX + fieldWidth / 2 - halfWidth, startY + spacing * 7, halfWidth, 20).build());
 
         // Delete button
         this.addDrawableChild(ButtonWidget.builder(
@@ -129,6 +171,7 @@ public class ServerSettingsScreen extends Screen {
 
         instance.setRamMB(selectedRam);
         instance.setMaxPlayers(selectedSlots);
+        instance.setBuild(selectedBuild);
 
         try {
             instance.save();
@@ -140,6 +183,33 @@ public class ServerSettingsScreen extends Screen {
         this.client.setScreen(parent);
     }
 
+    private void cloneServer() {
+        String name = Text.translatable("embeddedmc.server.copy_name", instance.getName()).getString();
+        EmbeddedMC.getInstance().getServerManager().cloneInstance(instance.getId(), name).thenAccept(clone -> {
+            if (clone != null && this.client != null) {
+                this.client.execute(() -> {
+                    if (parent instanceof ServerSelectScreen selectScreen) {
+                        selectScreen.refreshServerList();
+                    }
+                });
+            }
+        });
+        this.client.setScreen(parent);
+    }
+
+    private void confirmResetWorld() {
+        this.client.setScreen(new ConfirmScreen(
+                confirmed -> {
+                    if (confirmed) {
+                        EmbeddedMC.getInstance().getServerManager().resetWorld(instance.getId());
+                    }
+                    this.client.setScreen(this);
+                },
+                Text.translatable("embeddedmc.confirm.reset_world"),
+                Text.translatable("embeddedmc.confirm.reset_world_message", instance.getName())
+        ));
+    }
+
     private void deleteServer() {
         if (parent instanceof ServerSelectScreen selectScreen) {
             selectScreen.deleteServer(instance);
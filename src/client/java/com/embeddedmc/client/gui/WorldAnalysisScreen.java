@@ -0,0 +1,358 @@
+package com.embeddedmc.client.gui;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ModConfig;
+import com.embeddedmc.config.ServerInstance;
+import com.embeddedmc.world.RegionAnalyzer;
+import com.embeddedmc.world.RegionOptimizer;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.ConfirmScreen;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.widget.ButtonWidget;
+import net.minecraft.text.Text;
+
+import java.util.List;
+
+/**
+ * Region statistics of an instance's worlds: totals, InhabitedTime
+ * distribution and a per-region heatmap. Stopped instances can be compacted
+ * and trimmed from here.
+ */
+public class WorldAnalysisScreen extends Screen {
+    private static final String[] BUCKET_KEYS = {"never", "minute", "ten_minutes", "hour", "more", "unreadable"};
+
+    private final Screen parent;
+    private final ServerInstance instance;
+
+    private RegionAnalyzer analyzer;
+    private RegionAnalyzer.Report report;
+    private boolean failed = false;
+    private int dimensionIndex = 0;
+    private HeatmapMode mode = HeatmapMode.CHUNKS;
+
+    private ButtonWidget dimensionButton;
+    private ButtonWidget modeButton;
+    private ButtonWidget compactButton;
+    private ButtonWidget trimButton;
+
+    private RegionOptimizer optimizer;
+    private String optimizeResult;
+
+    // Regions and totals of the shown dimension, recomputed when it changes
+    private String shownDimension;
+    private List<RegionAnalyzer.RegionStats> shownRegions;
+    private RegionAnalyzer.Summary shownSummary;
+
+    private enum HeatmapMode {
+        CHUNKS, SIZE, FRAGMENTATION, INHABITED
+    }
+
+    public WorldAnalysisScreen(Screen parent, ServerInstance instance) {
+        super(Text.translatable("embeddedmc.analysis.title"));
+        this.parent = parent;
+        this.instance = instance;
+    }
+
+    @Override
+    protected void init() {
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.literal("← " + Text.translatable("embeddedmc.button.back").getString()),
+                button -> this.client.setScreen(parent)
+        ).dimensions(10, 5, 80, 20).build());
+
+        this.addDrawableChild(ButtonWidget.builder(
+                Text.translatable("embeddedmc.plugin.refresh"),
+                button -> startScan()
+        ).dimensions(this.width - 90, 5, 80, 20).build());
+
+        this.dimensionButton = ButtonWidget.builder(Text.empty(), button -> {
+            if (report != null && !report.getDimensions().isEmpty()) {
+                dimensionIndex = (dimensionIndex + 1) % report.getDimensions().size();
+                updateButtons();
+            }
+        }).dimensions(this.width / 2 - 152, 30, 150, 20).build();
+        this.addDrawableChild(this.dimensionButton);
+
+        this.modeButton = ButtonWidget.builder(Text.empty(), button -> {
+            mode = HeatmapMode.values()[(mode.ordinal() + 1) % HeatmapMode.values().length];
+            updateButtons();
+        }).dimensions(this.width / 2 + 2, 30, 150, 20).build();
+        this.addDrawableChild(this.modeButton);
+
+        // Compact / Trim Unvisited (only while the server is stopped)
+        this.compactButton = ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.compact_world"),
+                button -> startOptimize(false)
+        ).dimensions(this.width / 2 - 102, this.height - 25, 100, 20).build();
+        this.addDrawableChild(this.compactButton);
+
+        this.trimButton = ButtonWidget.builder(
+                Text.translatable("embeddedmc.button.trim_world"),
+                button -> confirmTrim()
+        ).dimensions(this.width / 2 + 2, this.height - 25, 100, 20).build();
+        this.addDrawableChild(this.trimButton);
+
+        updateButtons();
+        if (analyzer == null) {
+            startScan();
+        }
+    }
+
+    private void startScan() {
+        RegionAnalyzer scan = new RegionAnalyzer(instance);
+        analyzer = scan;
+        failed = false;
+        scan.analyze().whenComplete((result, error) -> {
+            if (error != null) {
+                EmbeddedMC.LOGGER.error("World analysis failed for {}", instance.getId(), error);
+            }
+            if (this.client != null) {
+                this.client.execute(() -> {
+                    if (analyzer != scan) {
+                        return;
+                    }
+                    report = result;
+                    shownDimension = null;
+                    failed = error != null;
+                    if (report != null && dimensionIndex >= report.getDimensions().size()) {
+                        dimensionIndex = 0;
+                    }
+                    updateButtons();
+                });
+            }
+        });
+    }
+
+    private void confirmTrim() {
+        ModConfig config = EmbeddedMC.getInstance().getConfig();
+        this.client.setScreen(new ConfirmScreen(
+                confirmed -> {
+                    this.client.setScreen(this);
+                    if (confirmed) {
+                        startOptimize(true);
+                    }
+                },
+                Text.translatable("embeddedmc.confirm.trim_world"),
+                Text.translatable("embeddedmc.confirm.trim_world_message",
+                        config.getTrimMinInhabitedSeconds(), config.getTrimProtectRadiusChunks())
+        ));
+    }
+
+    private void startOptimize(boolean trim) {
+        ModConfig config = EmbeddedMC.getInstance().getConfig();
+        RegionOptimizer.Options options = trim
+                ? new RegionOptimizer.Options(config.getTrimMinInhabitedSeconds() * 20L, config.getTrimProtectRadiusChunks())
+                : new RegionOptimizer.Options(0, 0);
+        RegionOptimizer task = new RegionOptimizer(instance, options);
+        optimizer = task;
+        optimizeResult = null;
+
+        EmbeddedMC.getInstance().getServerManager().runOffline(instance.getId(), task::optimize).whenComplete((result, error) -> {
+            if (error != null) {
+                EmbeddedMC.LOGGER.error("World optimization failed for {}", instance.getId(), error);
+            }
+            if (this.client != null) {
+                this.client.execute(() -> {
+                    optimizer = null;
+                    optimizeResult = error != null
+                            ? Text.translatable("embeddedmc.analysis.optimize_failed").getString()
+                            : Text.translatable("embeddedmc.analysis.optimize_done", formatSize(result.bytesBefore()),
+                                    formatSize(result.bytesAfter()), result.chunksDropped()).getString();
+                    startScan();
+                });
+            }
+        });
+    }
+
+    @Override
+    public void tick() {
+        super.tick();
+        boolean idle = optimizer == null && !EmbeddedMC.getInstance().getServerManager().isRunning(instance.getId());
+        this.compactButton.active = idle;
+        this.trimButton.active = idle;
+    }
+
+    private void updateButtons() {
+        String dimension = currentDimension();
+        this.dimensionButton.setMessage(Text.translatable("embeddedmc.analysis.dimension", dimension != null ? dimension : "-"));
+        this.modeButton.setMessage(Text.translatable("embeddedmc.analysis.mode",
+                Text.translatable("embeddedmc.analysis.mode." + mode.name().toLowerCase())));
+    }
+
+    private String currentDimension() {
+        if (report == null || report.getDimensions().isEmpty()) {
+            return null;
+        }
+        return report.getDimensions().get(dimensionIndex);
+    }
+
+    @Override
+    public void render(DrawContext context, int mouseX, int mouseY, float delta) {
+        super.render(context, mouseX, mouseY, delta);
+        context.drawCenteredTextWithShadow(this.textRenderer, this.title, this.width / 2, 10, 0xFFFFFFFF);
+
+        if (report == null) {
+            Text status = failed
+                    ? Text.translatable("embeddedmc.analysis.failed")
+                    : Text.translatable("embeddedmc.analysis.scanning", analyzer.getScanned(), Math.max(analyzer.getTotal(), 0));
+            context.drawCenteredTextWithShadow(this.textRenderer, status, this.width / 2, this.height / 2, 0xFFAAAAAA);
+            return;
+        }
+
+        String dimension = currentDimension();
+        if (dimension == null) {
+            context.drawCenteredTextWithShadow(this.textRenderer, Text.translatable("embeddedmc.analysis.no_regions"),
+                    this.width / 2, this.height / 2, 0xFFAAAAAA);
+            return;
+        }
+
+        if (!dimension.equals(shownDimension)) {
+            shownDimension = dimension;
+            shownRegions = report.getRegions(dimension);
+            shownSummary = report.summarize(shownRegions);
+        }
+        renderSummary(context, shownSummary);
+        RegionAnalyzer.RegionStats hovered = renderHeatmap(context, shownRegions, mouseX, mouseY);
+
+        int infoY = this.height - 38;
+        if (optimizer != null) {
+            context.drawCenteredTextWithShadow(this.textRenderer,
+                    Text.translatable("embeddedmc.analysis.optimizing", optimizer.getProcessed(), Math.max(optimizer.getTotal(), 0)),
+                    this.width / 2, infoY, 0xFFFFFF55);
+        } else if (hovered != null) {
+            String line = Text.translatable("embeddedmc.analysis.region", hovered.x(), hovered.z(), hovered.chunks(),
+                    formatSize(hovered.fileSize()), Math.round(hovered.getFragmentation() * 100),
+                    formatSize(hovered.largestChunk()), formatTicks(hovered.maxInhabited())).getString();
+            context.drawCenteredTextWithShadow(this.textRenderer, line, this.width / 2, infoY, 0xFFFFFFFF);
+        } else if (optimizeResult != null) {
+            context.drawCenteredTextWithShadow(this.textRenderer, optimizeResult, this.width / 2, infoY, 0xFF55FF55);
+        } else {
+            context.drawCenteredTextWithShadow(this.textRenderer,
+                    Text.translatable("embeddedmc.analysis.scan_info", report.rescanned(), report.regions().size(), report.millis()),
+                    this.width / 2, infoY, 0xFF666666);
+        }
+    }
+
+    private void renderSummary(DrawContext context, RegionAnalyzer.Summary summary) {
+        int x = 10;
+        int y = 60;
+        int lineHeight = 12;
+
+        context.drawTextWithShadow(this.textRenderer, Text.translatable("embeddedmc.analysis.regions", summary.regions()), x, y, 0xFFFFFFFF);
+        context.drawTextWithShadow(this.textRenderer, Text.translatable("embeddedmc.analysis.chunks", summary.chunks()), x, y += lineHeight, 0xFFFFFFFF);
+        context.drawTextWithShadow(this.textRenderer, Text.translatable("embeddedmc.analysis.file_size", formatSize(summary.fileBytes())), x, y += lineHeight, 0xFFFFFFFF);
+        context.drawTextWithShadow(this.textRenderer, Text.translatable("embeddedmc.analysis.stored", formatSize(summary.storedBytes())), x, y += lineHeight, 0xFFFFFFFF);
+        context.drawTextWithShadow(this.textRenderer, Text.translatable("embeddedmc.analysis.fragmentation",
+                formatSize((long) summary.freeSectors() * 4096), Math.round(summary.getFragmentation() * 100)), x, y += lineHeight, 0xFFFFFFFF);
+
+        // InhabitedTime distribution as bars
+        y += lineHeight * 2;
+        context.drawTextWithShadow(this.textRenderer, Text.translatable("embeddedmc.analysis.inhabited"), x, y, 0xFFAAAAAA);
+        int barWidth = 80;
+        int labelWidth = 70;
+        int[] histogram = summary.inhabitedHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            y += lineHeight;
+            context.drawTextWithShadow(this.textRenderer, Text.translatable("embeddedmc.analysis.bucket." + BUCKET_KEYS[i]), x, y, 0xFFAAAAAA);
+            int fill = summary.chunks() > 0 ? barWidth * histogram[i] / summary.chunks() : 0;
+            context.fill(x + labelWidth, y, x + labelWidth + barWidth, y + 8, 0xFF222222);
+            int color = i == histogram.length - 1 ? 0xFF777777 : heatColor((double) i / (histogram.length - 2));
+            context.fill(x + labelWidth, y, x + labelWidth + fill, y + 8, color);
+            context.drawTextWithShadow(this.textRenderer, String.valueOf(histogram[i]), x + labelWidth + barWidth + 4, y, 0xFFFFFFFF);
+        }
+    }
+
+    /**
+     * Draw one cell per region, scaled to fit the free area. Returns the region under the mouse.
+     */
+    private RegionAnalyzer.RegionStats renderHeatmap(DrawContext context, List<RegionAnalyzer.RegionStats> regions, int mouseX, int mouseY) {
+        int areaX = 200;
+        int areaY = 60;
+        int areaWidth = this.width - areaX - 10;
+        int areaHeight = this.height - areaY - 50;
+        if (regions.isEmpty() || areaWidth <= 0 || areaHeight <= 0) {
+            return null;
+        }
+
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minZ = Integer.MAX_VALUE, maxZ = Integer.MIN_VALUE;
+        double maxValue = 0;
+        for (RegionAnalyzer.RegionStats region : regions) {
+            minX = Math.min(minX, region.x());
+            maxX = Math.max(maxX, region.x());
+            minZ = Math.min(minZ, region.z());
+            maxZ = Math.max(maxZ, region.z());
+            maxValue = Math.max(maxValue, value(region));
+        }
+
+        int columns = maxX - minX + 1;
+        int rows = maxZ - minZ + 1;
+        int cellSize = Math.max(1, Math.min(16, Math.min(areaWidth / columns, areaHeight / rows)));
+        int mapX = areaX + (areaWidth - cellSize * columns) / 2;
+        int mapY = areaY + (areaHeight - cellSize * rows) / 2;
+
+        context.fill(mapX - 1, mapY - 1, mapX + cellSize * columns + 1, mapY + cellSize * rows + 1, 0xFF111111);
+
+        RegionAnalyzer.RegionStats hovered = null;
+        int gap = cellSize > 3 ? 1 : 0;
+        for (RegionAnalyzer.RegionStats region : regions) {
+            int cellX = mapX + (region.x() - minX) * cellSize;
+            int cellY = mapY + (region.z() - minZ) * cellSize;
+            double t = maxValue > 0 ? value(region) / maxValue : 0;
+            if (mode == HeatmapMode.INHABITED && maxValue > 0) {
+                // Inhabited time spans orders of magnitude, so use a log scale
+                t = Math.log1p(value(region)) / Math.log1p(maxValue);
+            }
+            context.fill(cellX, cellY, cellX + cellSize - gap, cellY + cellSize - gap, heatColor(t));
+
+            if (mouseX >= cellX && mouseX < cellX + cellSize && mouseY >= cellY && mouseY < cellY + cellSize) {
+                hovered = region;
+            }
+        }
+
+        if (hovered != null) {
+            int cellX = mapX + (hovered.x() - minX) * cellSize;
+            int cellY = mapY + (hovered.z() - minZ) * cellSize;
+            context.fill(cellX, cellY, cellX + cellSize - gap, cellY + 1, 0xFFFFFFFF);
+            context.fill(cellX, cellY + cellSize - gap - 1, cellX + cellSize - gap, cellY + cellSize - gap, 0xFFFFFFFF);
+        }
+        return hovered;
+    }
+
+    private double value(RegionAnalyzer.RegionStats region) {
+        return switch (mode) {
+            case CHUNKS -> region.chunks();
+            case SIZE -> region.fileSize();
+            case FRAGMENTATION -> region.getFragmentation();
+            case INHABITED -> region.chunks() > 0 ? (double) region.totalInhabited() / region.chunks() : 0;
+        };
+    }
+
+    /**
+     * Green (low) over yellow to red (high).
+     */
+    private static int heatColor(double t) {
+        t = Math.max(0, Math.min(1, t));
+        int red = (int) (255 * Math.min(1, t * 2));
+        int green = (int) (255 * Math.min(1, (1 - t) * 2));
+        return 0xFF000000 | red << 16 | green << 8 | 0x30;
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return (bytes / 1024) + " KB";
+        if (bytes < 1024L * 1024 * 1024) return (bytes / (1024 * 1024)) + " MB";
+        return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    private static String formatTicks(long ticks) {
+        long seconds = ticks / 20;
+        if (seconds < 60) return seconds + "s";
+        if (seconds < 3600) return (seconds / 60) + "m";
+        return (seconds / 3600) + "h " + (seconds % 3600 / 60) + "m";
+    }
+
+    @Override
+    public void close() {
+        this.client.setScreen(parent);
+    }
+}
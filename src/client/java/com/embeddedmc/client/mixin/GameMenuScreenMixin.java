@@ -2,6 +2,7 @@ package com.embeddedmc.client.mixin;
 
 import com.embeddedmc.EmbeddedMC;
 import com.embeddedmc.client.EmbeddedMCClient;
+import com.embeddedmc.client.PauseController;
 import com.embeddedmc.client.gui.ConsoleScreen;
 import com.embeddedmc.client.gui.FileListScreen;
 import com.embeddedmc.config.ServerInstance;
@@ -24,6 +25,11 @@ public abstract class GameMenuScreenMixin extends Screen {
 
     @Inject(method = "init", at = @At("RETURN"))
     private void addConsoleButton(CallbackInfo ci) {
+        // Freeze world ticking like singleplayer does while paused
+        if (this.client != null && EmbeddedMC.getInstance() != null) {
+            PauseController.onPauseMenuOpened(this.client);
+        }
+
         // Only add buttons if an EmbeddedMC server is running
         if (EmbeddedMC.getInstance() != null &&
             EmbeddedMC.getInstance().getServerManager() != null &&
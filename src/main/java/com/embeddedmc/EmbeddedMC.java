@@ -31,6 +31,7 @@ public class EmbeddedMC implements ModInitializer {
 
         // Initialize server manager
         serverManager = new ServerManager(dataPath.resolve("instances"));
+        serverManager.start();
 
         // Add shutdown hook to stop all servers when game closes
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -16,6 +16,52 @@ public class ModConfig {
     private boolean autoAcceptEula = false;
     private String language = "en_us";
 
+    // Process isolation (Linux only)
+    private boolean processIsolation = true;
+    private int reservedClientCores = 2;
+    private int serverNiceLevel = 5;
+    private int serverIoPriority = 7;
+    private int cgroupCpuQuotaPercent = 0;
+    private int cgroupMemoryLimitMB = 0;
+
+    // Freeze servers without players after this many seconds (0 = never)
+    private int hibernateAfterSeconds = 300;
+
+    // Freeze world ticking while the pause menu is open (1.20.3+)
+    private boolean freezeOnPause = true;
+
+    // Managed autosave: save on pause / when standing still / after the max interval
+    private boolean managedAutosave = true;
+    private int autosaveIdleSeconds = 10;
+    private int autosaveMinIntervalSeconds = 60;
+    private int autosaveMaxIntervalSeconds = 300;
+
+    // Incremental world backups (0 = only manual), read rate limited to keep the server smooth
+    private int backupIntervalMinutes = 0;
+    private int backupMaxMBps = 50;
+    // Snapshots kept per instance, older ones are pruned after each backup (0 = keep all)
+    private int backupRetention = 24;
+
+    // "Trim Unvisited" drops chunks inhabited for less than this, except near spawn
+    private int trimMinInhabitedSeconds = 30;
+    private int trimProtectRadiusChunks = 32;
+
+    // Parallel connections per download (servers without range support use one)
+    private int downloadConnections = 4;
+
+    // Start downloading the selected server JAR while the create screen is still open
+    private boolean prefetchJars = true;
+
+    // Download scheduling: parallel server starts, total rate cap (0 = unlimited),
+    // and holding background downloads while connected to a server
+    private int maxConcurrentDownloads = 2;
+    private int downloadLimitKBps = 0;
+    private boolean pauseDownloadsInGame = true;
+
+    // Download newer builds for servers that aren't pinned to one; swapped in on the next stop/start
+    private boolean autoUpdateBuilds = true;
+    private int updateCheckIntervalMinutes = 60;
+
     private transient Path configPath;
 
     public static ModConfig load(Path path) {
@@ -59,4 +105,76 @@ public class ModConfig {
 
     public String getLanguage() { return language; }
     public void setLanguage(String language) { this.language = language; }
+
+    public boolean isProcessIsolation() { return processIsolation; }
+    public void setProcessIsolation(boolean processIsolation) { this.processIsolation = processIsolation; }
+
+    public int getReservedClientCores() { return reservedClientCores; }
+    public void setReservedClientCores(int reservedClientCores) { this.reservedClientCores = reservedClientCores; }
+
+    public int getServerNiceLevel() { return serverNiceLevel; }
+    public void setServerNiceLevel(int serverNiceLevel) { this.serverNiceLevel = serverNiceLevel; }
+
+    public int getServerIoPriority() { return serverIoPriority; }
+    public void setServerIoPriority(int serverIoPriority) { this.serverIoPriority = serverIoPriority; }
+
+    public int getCgroupCpuQuotaPercent() { return cgroupCpuQuotaPercent; }
+    public void setCgroupCpuQuotaPercent(int cgroupCpuQuotaPercent) { this.cgroupCpuQuotaPercent = cgroupCpuQuotaPercent; }
+
+    public int getCgroupMemoryLimitMB() { return cgroupMemoryLimitMB; }
+    public void setCgroupMemoryLimitMB(int cgroupMemoryLimitMB) { this.cgroupMemoryLimitMB = cgroupMemoryLimitMB; }
+
+    public int getHibernateAfterSeconds() { return hibernateAfterSeconds; }
+    public void setHibernateAfterSeconds(int hibernateAfterSeconds) { this.hibernateAfterSeconds = hibernateAfterSeconds; }
+
+    public boolean isFreezeOnPause() { return freezeOnPause; }
+    public void setFreezeOnPause(boolean freezeOnPause) { this.freezeOnPause = freezeOnPause; }
+
+    public boolean isManagedAutosave() { return managedAutosave; }
+    public void setManagedAutosave(boolean managedAutosave) { this.managedAutosave = managedAutosave; }
+
+    public int getAutosaveIdleSeconds() { return autosaveIdleSeconds; }
+    public void setAutosaveIdleSeconds(int autosaveIdleSeconds) { this.autosaveIdleSeconds = autosaveIdleSeconds; }
+
+    public int getAutosaveMinIntervalSeconds() { return autosaveMinIntervalSeconds; }
+    public void setAutosaveMinIntervalSeconds(int autosaveMinIntervalSeconds) { this.autosaveMinIntervalSeconds = autosaveMinIntervalSeconds; }
+
+    public int getAutosaveMaxIntervalSeconds() { return autosaveMaxIntervalSeconds; }
+    public void setAutosaveMaxIntervalSeconds(int autosaveMaxIntervalSeconds) { this.autosaveMaxIntervalSeconds = autosaveMaxIntervalSeconds; }
+
+    public int getBackupIntervalMinutes() { return backupIntervalMinutes; }
+    public void setBackupIntervalMinutes(int backupIntervalMinutes) { this.backupIntervalMinutes = backupIntervalMinutes; }
+
+    public int getBackupMaxMBps() { return backupMaxMBps; }
+    public void setBackupMaxMBps(int backupMaxMBps) { this.backupMaxMBps = backupMaxMBps; }
+
+    public int getBackupRetention() { return backupRetention; }
+    public void setBackupRetention(int backupRetention) { this.backupRetention = backupRetention; }
+
+    public int getDownloadConnections() { return downloadConnections; }
+    public void setDownloadConnections(int downloadConnections) { this.downloadConnections = downloadConnections; }
+
+    public boolean isPrefetchJars() { return prefetchJars; }
+    public void setPrefetchJars(boolean prefetchJars) { this.prefetchJars = prefetchJars; }
+
+    public int getMaxConcurrentDownloads() { return maxConcurrentDownloads; }
+    public void setMaxConcurrentDownloads(int maxConcurrentDownloads) { this.maxConcurrentDownloads = maxConcurrentDownloads; }
+
+    public int getDownloadLimitKBps() { return downloadLimitKBps; }
+    public void setDownloadLimitKBps(int downloadLimitKBps) { this.downloadLimitKBps = downloadLimitKBps; }
+
+    public boolean isPauseDownloadsInGame() { return pauseDownloadsInGame; }
+    public void setPauseDownloadsInGame(boolean pauseDownloadsInGame) { this.pauseDownloadsInGame = pauseDownloadsInGame; }
+
+    public boolean isAutoUpdateBuilds() { return autoUpdateBuilds; }
+    public void setAutoUpdateBuilds(boolean autoUpdateBuilds) { this.autoUpdateBuilds = autoUpdateBuilds; }
+
+    public int getUpdateCheckIntervalMinutes() { return updateCheckIntervalMinutes; }
+    public void setUpdateCheckIntervalMinutes(int updateCheckIntervalMinutes) { this.updateCheckIntervalMinutes = updateCheckIntervalMinutes; }
+
+    public int getTrimMinInhabitedSeconds() { return trimMinInhabitedSeconds; }
+    public void setTrimMinInhabitedSeconds(int trimMinInhabitedSeconds) { this.trimMinInhabitedSeconds = trimMinInhabitedSeconds; }
+
+    public int getTrimProtectRadiusChunks() { return trimProtectRadiusChunks; }
+    public void setTrimProtectRadiusChunks(int trimProtectRadiusChunks) { this.trimProtectRadiusChunks = trimProtectRadiusChunks; }
 }
@@ -3,6 +3,7 @@ package com.embeddedmc.config;
 import com.embeddedmc.server.ServerType;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.InstanceCreator;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -20,16 +21,21 @@ public class ServerInstance {
     private ServerType type;
     private String mcVersion;
     private int build;
+    private int installedBuild; // Build of server.jar, 0 = unknown
+    private int stagedBuild; // Build waiting in server.jar.update, 0 = none
     private int ramMB;
     private int port;
     private int maxPlayers;
     private List<String> jvmArgs;
     private boolean autoStart;
+    private String cpuAffinity; // taskset CPU list, null = automatic
+    private Integer niceLevel; // null = global default
     private transient Path instancePath;
     private transient ServerStatus status;
+    private transient volatile boolean detailsLoaded = true;
 
     public enum ServerStatus {
-        STOPPED, STARTING, RUNNING, STOPPING, ERROR
+        STOPPED, STARTING, RUNNING, HIBERNATED, STOPPING, ERROR
     }
 
     public ServerInstance() {
@@ -59,10 +65,55 @@ public class ServerInstance {
         return null;
     }
 
+    /**
+     * Create an instance from its manifest entry. The remaining settings are
+     * read from instance.json on the first {@link #ensureLoaded()}.
+     */
+    public static ServerInstance stub(Path instancePath, String id, String name, ServerType type, String mcVersion, int port) {
+        ServerInstance instance = new ServerInstance();
+        instance.id = id;
+        instance.name = name;
+        instance.type = type;
+        instance.mcVersion = mcVersion;
+        instance.port = port;
+        instance.instancePath = instancePath;
+        instance.detailsLoaded = false;
+        return instance;
+    }
+
+    /**
+     * Load the full settings of a manifest stub in place, so references held
+     * by screens stay valid.
+     */
+    public void ensureLoaded() throws IOException {
+        if (detailsLoaded) {
+            return;
+        }
+        synchronized (this) {
+            if (detailsLoaded) {
+                return;
+            }
+            Path configFile = instancePath.resolve("instance.json");
+            if (Files.exists(configFile)) {
+                Gson inPlace = new GsonBuilder()
+                        .registerTypeAdapter(ServerInstance.class, (InstanceCreator<ServerInstance>) t -> this)
+                        .create();
+                inPlace.fromJson(Files.readString(configFile), ServerInstance.class);
+            }
+            detailsLoaded = true;
+        }
+    }
+
+    public boolean isDetailsLoaded() {
+        return detailsLoaded;
+    }
+
     public void save() throws IOException {
         if (instancePath == null) {
             throw new IllegalStateException("Instance path not set");
         }
+        // Never overwrite instance.json with the defaults of an unloaded stub
+        ensureLoaded();
         Files.createDirectories(instancePath);
         Path configFile = instancePath.resolve("instance.json");
         Files.writeString(configFile, GSON.toJson(this));
@@ -72,6 +123,20 @@ public class ServerInstance {
         return instancePath.resolve("server.jar");
     }
 
+    /**
+     * True if server.jar is missing or isn't the pinned build.
+     */
+    public boolean needsServerJar() {
+        return !Files.exists(getServerJar()) || (build > 0 && installedBuild != build);
+    }
+
+    /**
+     * Staging slot for a newer build, swapped in while the server is stopped.
+     */
+    public Path getStagedJar() {
+        return instancePath.resolve("server.jar.update");
+    }
+
     public Path getPluginsDir() {
         return instancePath.resolve("plugins");
     }
@@ -80,6 +145,32 @@ public class ServerInstance {
         return instancePath.resolve("world");
     }
 
+    /**
+     * The overworld plus the Bukkit-style nether/end folders that exist.
+     */
+    public List<Path> getWorldDirs() {
+        Path world = getWorldDir();
+        List<Path> dirs = new ArrayList<>();
+        for (Path dir : List.of(world, world.resolveSibling(world.getFileName() + "_nether"),
+                world.resolveSibling(world.getFileName() + "_the_end"))) {
+            if (Files.isDirectory(dir)) {
+                dirs.add(dir);
+            }
+        }
+        return dirs;
+    }
+
+    /**
+     * Snapshot of the worlds used by "Reset World".
+     */
+    public Path getPristineDir() {
+        return instancePath.resolve(".pristine");
+    }
+
+    public Path getBackupDir() {
+        return instancePath.resolve("backups");
+    }
+
     public Path getServerProperties() {
         return instancePath.resolve("server.properties");
     }
@@ -150,6 +241,12 @@ public class ServerInstance {
     public int getBuild() { return build; }
     public void setBuild(int build) { this.build = build; }
 
+    public int getInstalledBuild() { return installedBuild; }
+    public void setInstalledBuild(int installedBuild) { this.installedBuild = installedBuild; }
+
+    public int getStagedBuild() { return stagedBuild; }
+    public void setStagedBuild(int stagedBuild) { this.stagedBuild = stagedBuild; }
+
     public int getRamMB() { return ramMB; }
     public void setRamMB(int ramMB) { this.ramMB = ramMB; }
 
@@ -165,6 +262,12 @@ public class ServerInstance {
     public boolean isAutoStart() { return autoStart; }
     public void setAutoStart(boolean autoStart) { this.autoStart = autoStart; }
 
+    public String getCpuAffinity() { return cpuAffinity; }
+    public void setCpuAffinity(String cpuAffinity) { this.cpuAffinity = cpuAffinity; }
+
+    public Integer getNiceLevel() { return niceLevel; }
+    public void setNiceLevel(Integer niceLevel) { this.niceLevel = niceLevel; }
+
     public Path getInstancePath() { return instancePath; }
     public void setInstancePath(Path instancePath) { this.instancePath = instancePath; }
 
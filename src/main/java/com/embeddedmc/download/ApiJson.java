@@ -0,0 +1,76 @@
+package com.embeddedmc.download;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helpers for reading API responses field by field with a {@link JsonReader}.
+ */
+final class ApiJson {
+    private ApiJson() {}
+
+    /**
+     * Skip ahead to the value of {@code name} in the object being read.
+     * Returns false, with the reader at the end of the object, if there is
+     * no such field.
+     */
+    static boolean find(JsonReader reader, String name) throws IOException {
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(name)) {
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Skip the remaining fields of the object being read.
+     */
+    static void skipRest(JsonReader reader) throws IOException {
+        while (reader.hasNext()) {
+            reader.nextName();
+            reader.skipValue();
+        }
+    }
+
+    /**
+     * String value, numbers as their text; null for JSON null.
+     */
+    static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * The "versions" list of a project, newest first.
+     */
+    static List<String> readVersions(JsonReader reader) throws IOException {
+        List<String> versions = new ArrayList<>();
+        reader.beginObject();
+        if (find(reader, "versions")) {
+            versions.addAll(readStrings(reader));
+        }
+        // Listed oldest first
+        Collections.reverse(versions);
+        return versions;
+    }
+
+    static List<String> readStrings(JsonReader reader) throws IOException {
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            values.add(reader.nextString());
+        }
+        reader.endArray();
+        return values;
+    }
+}
@@ -0,0 +1,12 @@
+package com.embeddedmc.download;
+
+import java.util.List;
+
+/**
+ * One build of a server version as listed by the Paper or Purpur API.
+ *
+ * @param time    build time in epoch millis, 0 if unknown
+ * @param channel release channel ("default", "experimental"), null for Purpur
+ * @param changes commit summaries, newest first
+ */
+public record BuildInfo(int build, long time, String channel, List<String> changes) {}
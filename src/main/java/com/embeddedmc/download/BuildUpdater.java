@@ -0,0 +1,188 @@
+package com.embeddedmc.download;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ServerInstance;
+import com.embeddedmc.server.ServerManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps servers that aren't pinned to a build on the newest one. New builds
+ * are downloaded in the background and linked into the instance's staging
+ * slot ({@code server.jar.update}); the staged jar replaces server.jar with
+ * a single rename the next time the server is stopped or started, so an
+ * update never adds a download to the startup time.
+ */
+public final class BuildUpdater {
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "EmbeddedMC-Updater");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicBoolean checking = new AtomicBoolean();
+
+    private BuildUpdater() {}
+
+    /**
+     * Check the given instances for newer builds in the background. Does
+     * nothing if the previous check is still downloading.
+     */
+    public static void checkForUpdates(Collection<ServerInstance> instances) {
+        if (!checking.compareAndSet(false, true)) {
+            return;
+        }
+        List<ServerInstance> snapshot = List.copyOf(instances);
+        EXECUTOR.execute(() -> {
+            try {
+                for (ServerInstance instance : snapshot) {
+                    try {
+                        stageUpdate(instance);
+                    } catch (Exception e) {
+                        EmbeddedMC.LOGGER.warn("Update check for {} failed: {}", instance.getName(), e.getMessage());
+                    }
+                }
+            } finally {
+                checking.set(false);
+            }
+        });
+    }
+
+    private static void stageUpdate(ServerInstance instance) throws IOException {
+        if (!instance.isDetailsLoaded() || !instance.getType().hasApi() || instance.getBuild() > 0
+                || !Files.exists(instance.getServerJar()) || !isRegistered(instance)) {
+            return;
+        }
+
+        JarDownload latest = DownloadManager.resolveDownload(instance.getType(), instance.getMcVersion(), instance);
+        if (latest == null || latest.build() <= 0) {
+            return;
+        }
+        int current = Math.max(instance.getInstalledBuild(), instance.getStagedBuild());
+        if (current >= latest.build()) {
+            return;
+        }
+
+        String sha256 = DownloadManager.fetchToStore(latest, null, DownloadScheduler.Priority.UPDATE);
+
+        // Jars from before builds were tracked may already be the latest one
+        Path jar = instance.getServerJar();
+        String installed = JarHashCache.lookup(jar);
+        if (installed == null) {
+            installed = JarHashCache.hash(jar, "SHA-256");
+        }
+        if (sha256.equals(installed)) {
+            int build = latest.build();
+            whileRegistered(instance, () -> {
+                instance.setInstalledBuild(build);
+                instance.save();
+            });
+            return;
+        }
+
+        boolean staged;
+        try {
+            staged = stage(instance, sha256, latest.build());
+        } catch (NoSuchFileException e) {
+            // Collected from the store since the fetch
+            staged = stage(instance, DownloadManager.fetchToStore(latest, null, DownloadScheduler.Priority.UPDATE), latest.build());
+        }
+        if (!staged) {
+            return;
+        }
+        EmbeddedMC.LOGGER.info("Staged {} build {} for {} (installed: {})", instance.getType().getDisplayName(),
+                latest.build(), instance.getName(), instance.getInstalledBuild() > 0 ? instance.getInstalledBuild() : "unknown");
+    }
+
+    /**
+     * Link the staged jar and record its build, unless the instance was
+     * deleted during the download. Returns false in that case.
+     */
+    private static boolean stage(ServerInstance instance, String sha256, int build) throws IOException {
+        return whileRegistered(instance, () -> {
+            // Locked against applyStagedUpdate() moving the slot away at the same time
+            synchronized (instance) {
+                JarStore.link(sha256, instance.getStagedJar());
+                instance.setStagedBuild(build);
+                instance.save();
+            }
+        });
+    }
+
+    /**
+     * Whether the instance is still one of the manager's, not a deleted one
+     * whose update check was already queued.
+     */
+    private static boolean isRegistered(ServerInstance instance) {
+        return EmbeddedMC.getInstance().getServerManager().getInstance(instance.getId()) == instance;
+    }
+
+    private static boolean whileRegistered(ServerInstance instance, ServerManager.InstanceTask task) throws IOException {
+        return EmbeddedMC.getInstance().getServerManager().whileRegistered(instance.getId(), task);
+    }
+
+    /**
+     * Swap a staged build in. Must only be called while the server is not
+     * running. A staged jar that is no longer wanted (the instance was pinned
+     * in the meantime, or it is older than the installed one) is discarded.
+     *
+     * @return true if server.jar was replaced
+     */
+    public static boolean applyStagedUpdate(ServerInstance instance) {
+        synchronized (instance) {
+            return swapIn(instance);
+        }
+    }
+
+    private static boolean swapIn(ServerInstance instance) {
+        Path staged = instance.getStagedJar();
+        int build = instance.getStagedBuild();
+        if (build <= 0 && !Files.exists(staged)) {
+            return false;
+        }
+
+        try {
+            if (build <= 0 || instance.getBuild() > 0 || build <= instance.getInstalledBuild()
+                    || !Files.exists(staged)) {
+                discard(instance);
+                return false;
+            }
+
+            String sha256 = JarHashCache.lookup(staged);
+            Path jar = instance.getServerJar();
+            Files.move(staged, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            JarHashCache.forget(staged);
+            if (sha256 != null) {
+                JarHashCache.record(jar, sha256);
+            }
+
+            EmbeddedMC.LOGGER.info("Updated {} from build {} to {}", instance.getName(), instance.getInstalledBuild(), build);
+            instance.setInstalledBuild(build);
+            instance.setStagedBuild(0);
+            instance.save();
+            return true;
+        } catch (IOException e) {
+            // The old jar is untouched if the rename failed (e.g. still locked on Windows)
+            EmbeddedMC.LOGGER.warn("Failed to apply staged update for {}", instance.getName(), e);
+            return false;
+        }
+    }
+
+    private static void discard(ServerInstance instance) throws IOException {
+        JarHashCache.forget(instance.getStagedJar());
+        Files.deleteIfExists(instance.getStagedJar());
+        if (instance.getStagedBuild() != 0) {
+            instance.setStagedBuild(0);
+            instance.save();
+        }
+    }
+}
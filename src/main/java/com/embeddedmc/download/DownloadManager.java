@@ -3,20 +3,48 @@ package com.embeddedmc.download;
 import com.embeddedmc.EmbeddedMC;
 import com.embeddedmc.config.ServerInstance;
 import com.embeddedmc.server.ServerType;
+import net.fabricmc.loader.api.FabricLoader;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 public class DownloadManager {
-    private static final String USER_AGENT = "EmbeddedMC/1.0.0 (https://github.com/marti/EmbeddedMC)";
+    private static final long PREFETCH_DELAY_MS = 1500;
+
+    // Jars being fetched into the store by download URL
+    private static final Map<String, Fetch> FETCHES = new ConcurrentHashMap<>();
+
+    // Server start downloads; they queue in the DownloadScheduler, not here
+    private static final ExecutorService DOWNLOAD_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "EmbeddedMC-Jar-Download");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Prefetches run one at a time in the background
+    private static final ScheduledExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "EmbeddedMC-Prefetch");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static volatile ScheduledFuture<?> pendingPrefetch;
+    private static final AtomicBoolean clientVersionPrefetched = new AtomicBoolean();
 
     public static CompletableFuture<Boolean> downloadServer(ServerInstance instance, Consumer<DownloadProgress> progressCallback) {
         return CompletableFuture.supplyAsync(() -> {
@@ -30,21 +58,37 @@ public class DownloadManager {
                     progressCallback.accept(new DownloadProgress(0, 0, "Resolving version..."));
                 }
 
-                // Get download URL based on server type
-                String downloadUrl = resolveDownloadUrl(type, version, instance);
+                Path targetPath = instance.getServerJar();
+                Files.createDirectories(targetPath.getParent());
+                int build;
+                if (type == ServerType.SPIGOT) {
+                    // Spigot isn't downloadable; it is compiled once per version and stored like a download.
+                    // Compiled jars are never collected from the store.
+                    JarStore.link(SpigotBuildTools.build(version, progressCallback), targetPath);
+                    build = 0;
+                } else {
+                    // Get download URL and checksum based on server type
+                    JarDownload download = resolveDownload(type, version, instance);
 
-                if (downloadUrl == null) {
-                    EmbeddedMC.LOGGER.error("Could not resolve download URL for {} {}", type, version);
-                    return false;
-                }
+                    if (download == null) {
+                        EmbeddedMC.LOGGER.error("Could not resolve download URL for {} {}", type, version);
+                        return false;
+                    }
 
-                EmbeddedMC.LOGGER.info("Download URL: {}", downloadUrl);
+                    EmbeddedMC.LOGGER.info("Download URL: {}", download.url());
 
-                // Download the file
-                Path targetPath = instance.getServerJar();
-                downloadFile(downloadUrl, targetPath, progressCallback);
+                    // Usually already stored by a prefetch or another instance
+                    fetchAndLink(download, targetPath, progressCallback, DownloadScheduler.Priority.FOREGROUND);
+                    build = download.build();
+                }
+
+                instance.setInstalledBuild(build);
+                instance.save();
 
-                EmbeddedMC.LOGGER.info("Download complete: {}", targetPath);
+                if (progressCallback != null) {
+                    long size = Files.size(targetPath);
+                    progressCallback.accept(new DownloadProgress(size, size, "Complete!"));
+                }
                 return true;
 
             } catch (Exception e) {
@@ -54,66 +98,194 @@ public class DownloadManager {
                 }
                 return false;
             }
-        });
+        }, DOWNLOAD_EXECUTOR);
     }
 
-    private static String resolveDownloadUrl(ServerType type, String version, ServerInstance instance) throws IOException {
-        return switch (type) {
-            case PAPER, FOLIA -> PaperAPI.getDownloadUrl(type, version);
-            case PURPUR -> PurpurAPI.getDownloadUrl(version);
-            case SPIGOT -> null; // Spigot needs BuildTools, not supported yet
-        };
+    /**
+     * Speculatively fetch the jar for a selection after a short delay. A newer
+     * selection replaces one whose delay hasn't run out yet, so clicking
+     * through versions doesn't start a download for each of them.
+     */
+    public static void schedulePrefetch(ServerType type, String version) {
+        if (!EmbeddedMC.getInstance().getConfig().isPrefetchJars() || !type.hasApi()) {
+            return;
+        }
+        ScheduledFuture<?> previous = pendingPrefetch;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        pendingPrefetch = PREFETCH_EXECUTOR.schedule(() -> prefetch(type, version), PREFETCH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fetch the jar matching the client's own Minecraft version, the most
+     * likely pick for a new instance. Runs once per session.
+     */
+    public static void prefetchClientVersion() {
+        if (!EmbeddedMC.getInstance().getConfig().isPrefetchJars() || !clientVersionPrefetched.compareAndSet(false, true)) {
+            return;
+        }
+        FabricLoader.getInstance().getModContainer("minecraft").ifPresent(minecraft -> {
+            String version = minecraft.getMetadata().getVersion().getFriendlyString();
+            PREFETCH_EXECUTOR.execute(() -> prefetch(ServerType.PAPER, version));
+        });
     }
 
-    private static void downloadFile(String urlString, Path target, Consumer<DownloadProgress> progressCallback) throws IOException {
-        URL url = new URL(urlString);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestProperty("User-Agent", USER_AGENT);
-        connection.setConnectTimeout(30000);
-        connection.setReadTimeout(60000);
+    private static void prefetch(ServerType type, String version) {
+        try {
+            JarDownload download = resolveDownload(type, version, null);
+            if (download == null || JarStore.find(download) != null) {
+                return;
+            }
+            EmbeddedMC.LOGGER.info("Prefetching {} {}", type.getDisplayName(), version);
+            fetchToStore(download, null, DownloadScheduler.Priority.PREFETCH);
+        } catch (Exception e) {
+            EmbeddedMC.LOGGER.warn("Prefetch of {} {} failed: {}", type.getDisplayName(), version, e.getMessage());
+        }
+    }
 
-        int responseCode = connection.getResponseCode();
-        if (responseCode != 200) {
-            throw new IOException("HTTP error: " + responseCode);
+    /**
+     * Get a jar into the shared store and return its SHA-256. If the same
+     * jar is already being fetched (a prefetch, another instance), this joins
+     * that download and receives its progress instead of starting a second one,
+     * raising its priority if needed.
+     */
+    static String fetchToStore(JarDownload download, Consumer<DownloadProgress> progressCallback,
+                               DownloadScheduler.Priority priority) throws IOException {
+        String stored = JarStore.find(download);
+        if (stored != null) {
+            EmbeddedMC.LOGGER.info("Using stored server JAR {}", stored);
+            return stored;
         }
 
-        long totalSize = connection.getContentLengthLong();
-        Files.createDirectories(target.getParent());
-
-        try (InputStream in = connection.getInputStream();
-             OutputStream out = Files.newOutputStream(target)) {
-
-            byte[] buffer = new byte[8192];
-            long downloaded = 0;
-            int bytesRead;
-            long lastUpdate = System.currentTimeMillis();
-
-            while ((bytesRead = in.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
-                downloaded += bytesRead;
-
-                // Update progress every 100ms
-                if (System.currentTimeMillis() - lastUpdate > 100 && progressCallback != null) {
-                    lastUpdate = System.currentTimeMillis();
-                    String statusText;
-                    if (totalSize > 0) {
-                        int percent = (int) (downloaded * 100 / totalSize);
-                        statusText = String.format("Downloading... %d%% (%.1f MB / %.1f MB)",
-                            percent, downloaded / 1024.0 / 1024.0, totalSize / 1024.0 / 1024.0);
-                    } else {
-                        statusText = String.format("Downloading... %.1f MB", downloaded / 1024.0 / 1024.0);
+        Fetch created = new Fetch(priority);
+        Fetch fetch = FETCHES.computeIfAbsent(download.url(), url -> created);
+        fetch.job.promote(priority);
+        fetch.listen(progressCallback);
+        try {
+            if (fetch == created) {
+                try (DownloadScheduler.Job job = fetch.job) {
+                    String sha256 = JarStore.find(download);
+                    if (sha256 == null) {
+                        job.awaitTurn(() -> fetch.report(new DownloadProgress(0, 0, "Waiting for other downloads...")));
+                        Path staging = JarStore.getStagingFile(download);
+                        sha256 = downloadFile(download, staging, job, fetch::report);
+                        JarStore.add(staging, sha256, download);
+                        EmbeddedMC.LOGGER.info("Download complete: {}", download.url());
                     }
-                    progressCallback.accept(new DownloadProgress(downloaded, totalSize, statusText));
+                    fetch.result.complete(sha256);
+                } catch (Exception e) {
+                    fetch.result.completeExceptionally(e);
+                } finally {
+                    FETCHES.remove(download.url(), fetch);
+                }
+            }
+            return fetch.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Download failed", e.getCause());
+        } finally {
+            fetch.listeners.remove(progressCallback);
+        }
+    }
+
+    /**
+     * Get a jar into the store and link it to {@code target}. If the stored
+     * jar is collected between the two steps, it is fetched once more.
+     */
+    static void fetchAndLink(JarDownload download, Path target, Consumer<DownloadProgress> progressCallback,
+                             DownloadScheduler.Priority priority) throws IOException {
+        String sha256 = fetchToStore(download, progressCallback, priority);
+        try {
+            JarStore.link(sha256, target);
+        } catch (NoSuchFileException e) {
+            EmbeddedMC.LOGGER.info("Stored server JAR {} was removed before it was linked, fetching it again", sha256);
+            sha256 = fetchToStore(download, progressCallback, priority);
+            JarStore.link(sha256, target);
+        }
+    }
+
+    /**
+     * A download into the store that several callers may wait for.
+     */
+    private static final class Fetch {
+        final DownloadScheduler.Job job;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final List<Consumer<DownloadProgress>> listeners = new CopyOnWriteArrayList<>();
+        volatile DownloadProgress last;
+
+        Fetch(DownloadScheduler.Priority priority) {
+            this.job = DownloadScheduler.newJob(priority);
+        }
+
+        void listen(Consumer<DownloadProgress> listener) {
+            if (listener != null) {
+                listeners.add(listener);
+                DownloadProgress progress = last;
+                if (progress != null) {
+                    listener.accept(progress);
                 }
             }
         }
 
-        if (progressCallback != null) {
-            progressCallback.accept(new DownloadProgress(totalSize, totalSize, "Complete!"));
+        void report(DownloadProgress progress) {
+            last = progress;
+            listeners.forEach(listener -> listener.accept(progress));
+        }
+    }
+
+    /**
+     * The pinned build of the instance, or the latest one if it isn't pinned
+     * (or for prefetches, where there is no instance yet).
+     */
+    static JarDownload resolveDownload(ServerType type, String version, ServerInstance instance) throws IOException {
+        int build = instance != null ? instance.getBuild() : -1;
+        return switch (type) {
+            case PAPER, FOLIA -> build > 0 ? PaperAPI.getDownload(type, version, build) : PaperAPI.getDownload(type, version);
+            case PURPUR -> build > 0 ? PurpurAPI.getDownload(version, String.valueOf(build)) : PurpurAPI.getDownload(version);
+            case SPIGOT -> null; // Built locally, see SpigotBuildTools
+        };
+    }
+
+    /**
+     * Builds of a version for the build picker, newest first.
+     */
+    public static List<BuildInfo> getBuilds(ServerType type, String version) throws IOException {
+        return switch (type) {
+            case PAPER, FOLIA -> PaperAPI.getBuilds(type, version);
+            case PURPUR -> PurpurAPI.getBuilds(version);
+            case SPIGOT -> List.of();
+        };
+    }
+
+    /**
+     * @return SHA-256 of the downloaded file
+     */
+    private static String downloadFile(JarDownload download, Path target, DownloadScheduler.Job job,
+                                       Consumer<DownloadProgress> progressCallback) throws IOException {
+        int connections = EmbeddedMC.getInstance().getConfig().getDownloadConnections();
+        SegmentedDownloader downloader = new SegmentedDownloader(download.url(), target, connections, progressCallback)
+                .scheduledBy(job);
+        if (download.checksum() != null) {
+            downloader.expectChecksum(download.algorithm(), download.checksum());
+        } else {
+            EmbeddedMC.LOGGER.warn("No checksum published for {}, skipping verification", download.url());
         }
+        downloader.download();
+        return downloader.getSha256();
     }
 
-    public record DownloadProgress(long downloaded, long total, String status) {
+    /**
+     * @param bytesPerSecond current transfer rate, 0 if unknown
+     * @param etaSeconds     estimated time left, -1 if unknown
+     */
+    public record DownloadProgress(long downloaded, long total, String status, long bytesPerSecond, long etaSeconds) {
+        public DownloadProgress(long downloaded, long total, String status) {
+            this(downloaded, total, status, 0, -1);
+        }
+
         public int getPercent() {
             if (total <= 0) return -1;
             return (int) (downloaded * 100 / total);
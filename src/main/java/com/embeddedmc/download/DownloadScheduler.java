@@ -0,0 +1,267 @@
+package com.embeddedmc.download;
+
+import com.embeddedmc.EmbeddedMC;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which jar downloads may transfer and how fast. Every download runs
+ * as a {@link Job} with a priority:
+ * <ul>
+ *   <li>{@link Priority#FOREGROUND} - someone is waiting for it (server start),
+ *       up to maxConcurrentDownloads at a time</li>
+ *   <li>{@link Priority#PREFETCH} and {@link Priority#UPDATE} - background work,
+ *       one at a time, held back while a foreground download runs or while
+ *       downloads are paused (the player is connected to a server)</li>
+ * </ul>
+ * All jobs share one token bucket, so downloadLimitKBps caps the total rate
+ * no matter how many connections are open.
+ */
+public final class DownloadScheduler {
+    private static final int BACKGROUND_LIMIT = 1;
+    // Held jobs re-check at least this often, in case a config change was missed
+    private static final long HOLD_RECHECK_MS = 1000;
+
+    public enum Priority {
+        FOREGROUND, PREFETCH, UPDATE;
+
+        boolean isBackground() {
+            return this != FOREGROUND;
+        }
+    }
+
+    private static final Object LOCK = new Object();
+    private static final List<Job> waiting = new ArrayList<>();
+    private static final List<Job> running = new ArrayList<>();
+    private static final AtomicLong sequence = new AtomicLong();
+    private static final TokenBucket bucket = new TokenBucket(System.nanoTime());
+    private static volatile boolean paused;
+
+    private DownloadScheduler() {}
+
+    public static Job newJob(Priority priority) {
+        return new Job(priority);
+    }
+
+    /**
+     * Hold background downloads, e.g. while the player is connected to a
+     * server and needs the bandwidth. Foreground downloads are not affected.
+     */
+    public static void setPaused(boolean paused) {
+        if (DownloadScheduler.paused == paused) {
+            return;
+        }
+        DownloadScheduler.paused = paused;
+        EmbeddedMC.LOGGER.debug("Background downloads {}", paused ? "paused" : "resumed");
+        synchronized (LOCK) {
+            LOCK.notifyAll();
+        }
+    }
+
+    public static boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * A background job may move while nothing in the foreground wants to.
+     */
+    private static boolean isHeld(Job job) {
+        if (!job.priority.isBackground()) {
+            return false;
+        }
+        if (paused) {
+            return true;
+        }
+        for (Job other : running) {
+            if (!other.priority.isBackground()) {
+                return true;
+            }
+        }
+        for (Job other : waiting) {
+            if (!other.priority.isBackground()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean canStart(Job job) {
+        if (isHeld(job)) {
+            return false;
+        }
+        boolean background = job.priority.isBackground();
+        int limit = background ? BACKGROUND_LIMIT
+                : Math.max(1, EmbeddedMC.getInstance().getConfig().getMaxConcurrentDownloads());
+        long active = running.stream().filter(other -> other.priority.isBackground() == background).count();
+        if (active >= limit) {
+            return false;
+        }
+        // First come, first served within the same kind, higher priority first
+        Job first = waiting.stream()
+                .filter(other -> other.priority.isBackground() == background)
+                .min(Comparator.comparing((Job other) -> other.priority).thenComparingLong(other -> other.seq))
+                .orElse(job);
+        return first == job;
+    }
+
+    /**
+     * One download's place in the schedule. Create it when the download is
+     * requested, {@link #awaitTurn} before transferring, {@link #throttle}
+     * for every chunk read and {@link #close} when done. Background jobs
+     * should stop reading when {@link #shouldYield} says so and wait in
+     * {@link #checkpoint} before their next request.
+     */
+    public static final class Job implements AutoCloseable {
+        private final long seq = sequence.incrementAndGet();
+        private volatile Priority priority;
+        private boolean started;
+        private boolean closed;
+
+        private Job(Priority priority) {
+            this.priority = priority;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Raise the priority, e.g. when a server start joins a running prefetch.
+         */
+        public void promote(Priority priority) {
+            synchronized (LOCK) {
+                if (priority.ordinal() < this.priority.ordinal()) {
+                    this.priority = priority;
+                    LOCK.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Block until this job may start.
+         *
+         * @param onQueued called once if the job has to wait
+         */
+        public void awaitTurn(Runnable onQueued) throws InterruptedIOException {
+            synchronized (LOCK) {
+                if (started) {
+                    return;
+                }
+                waiting.add(this);
+                try {
+                    boolean notified = false;
+                    while (!canStart(this)) {
+                        if (!notified && onQueued != null) {
+                            notified = true;
+                            onQueued.run();
+                        }
+                        LOCK.wait(HOLD_RECHECK_MS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a download slot");
+                } finally {
+                    waiting.remove(this);
+                    LOCK.notifyAll();
+                }
+                started = true;
+                running.add(this);
+            }
+        }
+
+        /**
+         * Account for {@code bytes} just received and sleep as long as the
+         * bandwidth cap requires.
+         */
+        public void throttle(long bytes) throws InterruptedIOException {
+            try {
+                long limitKBps = EmbeddedMC.getInstance().getConfig().getDownloadLimitKBps();
+                if (limitKBps > 0) {
+                    long waitNanos = bucket.take(bytes, limitKBps * 1024);
+                    if (waitNanos > 0) {
+                        Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling download");
+            }
+        }
+
+        /**
+         * True if this is a background job that should put its transfer
+         * aside for now.
+         */
+        public boolean shouldYield() {
+            if (!priority.isBackground()) {
+                return false;
+            }
+            synchronized (LOCK) {
+                return isHeld(this);
+            }
+        }
+
+        /**
+         * Block while this job is held. Called between requests so a held
+         * job doesn't keep connections open.
+         */
+        public void checkpoint() throws InterruptedIOException {
+            if (!priority.isBackground()) {
+                return;
+            }
+            synchronized (LOCK) {
+                try {
+                    while (isHeld(this) && !closed) {
+                        LOCK.wait(HOLD_RECHECK_MS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while download was held");
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (LOCK) {
+                closed = true;
+                running.remove(this);
+                waiting.remove(this);
+                LOCK.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Shared by all jobs. Takes may overdraw the bucket; the caller then
+     * sleeps until the debt is paid off, which keeps the average rate exact
+     * without splitting reads. At most one second of burst is saved up.
+     */
+    static final class TokenBucket {
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(long now) {
+            this.lastRefill = now;
+        }
+
+        synchronized long take(long bytes, long bytesPerSecond) {
+            return take(bytes, bytesPerSecond, System.nanoTime());
+        }
+
+        /**
+         * @param now current {@link System#nanoTime()}
+         * @return nanoseconds to wait before continuing
+         */
+        synchronized long take(long bytes, long bytesPerSecond, long now) {
+            tokens = Math.min(bytesPerSecond, tokens + (now - lastRefill) * bytesPerSecond / 1e9);
+            lastRefill = now;
+            tokens -= bytes;
+            return tokens >= 0 ? 0 : (long) (-tokens * 1e9 / bytesPerSecond);
+        }
+    }
+}
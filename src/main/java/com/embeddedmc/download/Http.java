@@ -0,0 +1,111 @@
+package com.embeddedmc.download;
+
+import com.embeddedmc.EmbeddedMC;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one HTTP client all API and download traffic goes through. All
+ * variants share a connection pool and dispatcher, so repeated API calls
+ * reuse an open (HTTP/2 where supported) connection instead of paying for a
+ * new TLS handshake each time. Responses are gzip-decoded transparently,
+ * failed GETs are retried with exponential backoff.
+ */
+public final class Http {
+    public static final String USER_AGENT = "EmbeddedMC/1.0.0 (https://github.com/marti/EmbeddedMC)";
+
+    private static final int MAX_RETRIES = 3;
+    private static final long BACKOFF_BASE_MS = 500;
+    private static final long MAX_BACKOFF_MS = 8000;
+
+    private static final OkHttpClient BASE = createBase();
+
+    // Small JSON requests: fail fast so screens don't hang on a dead API
+    private static final OkHttpClient API = BASE.newBuilder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(30, TimeUnit.SECONDS)
+            .callTimeout(60, TimeUnit.SECONDS)
+            .build();
+
+    // Large bodies: no overall limit, only stalls are fatal. HTTP/1.1 only, since
+    // HTTP/2 would multiplex the parallel ranges onto one TCP connection
+    private static final OkHttpClient DOWNLOAD = BASE.newBuilder()
+            .protocols(List.of(Protocol.HTTP_1_1))
+            .connectTimeout(30, TimeUnit.SECONDS)
+            .readTimeout(60, TimeUnit.SECONDS)
+            .build();
+
+    private Http() {}
+
+    public static OkHttpClient api() {
+        return API;
+    }
+
+    public static OkHttpClient download() {
+        return DOWNLOAD;
+    }
+
+    private static OkHttpClient createBase() {
+        Dispatcher dispatcher = new Dispatcher();
+        // Segmented downloads open several connections to the same host
+        dispatcher.setMaxRequestsPerHost(16);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(8, 5, TimeUnit.MINUTES))
+                .addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                        .header("User-Agent", USER_AGENT)
+                        .build()))
+                .addInterceptor(Http::retry)
+                .build();
+    }
+
+    /**
+     * Retry GETs on I/O errors, 429 and 5xx responses, waiting 0.5 s, 1 s, 2 s
+     * (or what Retry-After asks for, up to 8 s) in between.
+     */
+    private static Response retry(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!request.method().equals("GET")) {
+            return chain.proceed(request);
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            long delay = Math.min(MAX_BACKOFF_MS, BACKOFF_BASE_MS << attempt);
+            try {
+                Response response = chain.proceed(request);
+                boolean retryable = response.code() == 429 || response.code() >= 500;
+                if (!retryable || attempt >= MAX_RETRIES) {
+                    return response;
+                }
+                String retryAfter = response.header("Retry-After");
+                if (retryAfter != null && retryAfter.matches("\\d+")) {
+                    delay = Math.min(MAX_BACKOFF_MS, Long.parseLong(retryAfter) * 1000);
+                }
+                EmbeddedMC.LOGGER.debug("HTTP {} for {}, retrying in {} ms", response.code(), request.url(), delay);
+                response.close();
+            } catch (IOException e) {
+                if (attempt >= MAX_RETRIES || chain.call().isCanceled() || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                EmbeddedMC.LOGGER.debug("Request to {} failed ({}), retrying in {} ms", request.url(), e.getMessage(), delay);
+            }
+
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry " + request.url());
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.embeddedmc.download;
+
+/**
+ * A resolved server jar: where to get it and the checksum the API publishes
+ * for it.
+ *
+ * @param algorithm MessageDigest name of the checksum ("SHA-256", "MD5"), null if none is known
+ * @param checksum  expected digest as lowercase hex, null if none is known
+ * @param build     build number, 0 if unknown
+ */
+public record JarDownload(String url, String algorithm, String checksum, int build) {
+    public static JarDownload unverified(String url) {
+        return new JarDownload(url, null, null, 0);
+    }
+}
@@ -0,0 +1,164 @@
+package com.embeddedmc.download;
+
+import com.embeddedmc.EmbeddedMC;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SHA-256 of server jars that passed checksum verification, keyed by path and
+ * remembered together with the file's mtime and size. As long as those match,
+ * the jar is known to be intact without reading it again.
+ */
+public final class JarHashCache {
+    private static final Gson GSON = new Gson();
+    private static final String CACHE_FILE = "jar-hashes.json";
+
+    private static Map<String, Entry> entries;
+
+    private record Entry(long mtime, long size, String sha256) {}
+
+    private JarHashCache() {}
+
+    /**
+     * Remember the hash of a freshly verified jar.
+     */
+    public static synchronized void record(Path jar, String sha256) {
+        try {
+            load().put(key(jar), new Entry(Files.getLastModifiedTime(jar).toMillis(), Files.size(jar), sha256));
+            save();
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to record hash of {}", jar, e);
+        }
+    }
+
+    /**
+     * The verified hash of a jar, or null if the jar was never verified or
+     * changed since (different mtime or size).
+     */
+    public static synchronized String lookup(Path jar) {
+        Entry entry = load().get(key(jar));
+        if (entry == null) {
+            return null;
+        }
+        try {
+            if (Files.getLastModifiedTime(jar).toMillis() == entry.mtime() && Files.size(jar) == entry.size()) {
+                return entry.sha256();
+            }
+        } catch (IOException e) {
+            // Missing or unreadable - treat as unverified
+        }
+        return null;
+    }
+
+    /**
+     * Check a jar before it is started. Unchanged jars are accepted from the
+     * cache; touched ones are hashed once more. Returns false only if the jar
+     * was verified once and its content differs now.
+     */
+    public static boolean check(Path jar) {
+        Entry entry;
+        synchronized (JarHashCache.class) {
+            entry = load().get(key(jar));
+        }
+        if (entry == null || lookup(jar) != null) {
+            return true;
+        }
+
+        try {
+            String sha256 = hash(jar, "SHA-256");
+            if (sha256.equals(entry.sha256())) {
+                // Same content, only the timestamp changed (copied, restored)
+                record(jar, sha256);
+                return true;
+            }
+            EmbeddedMC.LOGGER.warn("{} changed since it was downloaded and verified", jar);
+            forget(jar);
+            return false;
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to hash {}", jar, e);
+            return true;
+        }
+    }
+
+    public static synchronized void forget(Path jar) {
+        if (load().remove(key(jar)) != null) {
+            save();
+        }
+    }
+
+    /**
+     * Drop entries of jars that no longer exist (deleted instances).
+     */
+    public static synchronized void prune() {
+        if (load().keySet().removeIf(key -> !Files.exists(Path.of(key)))) {
+            save();
+        }
+    }
+
+    public static String hash(Path file, String algorithm) throws IOException {
+        MessageDigest digest = newDigest(algorithm);
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest " + algorithm, e);
+        }
+    }
+
+    private static String key(Path jar) {
+        return jar.toAbsolutePath().normalize().toString();
+    }
+
+    private static Map<String, Entry> load() {
+        if (entries != null) {
+            return entries;
+        }
+        entries = new TreeMap<>();
+        Path file = EmbeddedMC.getInstance().getDataPath().resolve(CACHE_FILE);
+        if (Files.exists(file)) {
+            try {
+                Map<String, Entry> loaded = GSON.fromJson(Files.readString(file),
+                        new TypeToken<TreeMap<String, Entry>>() {}.getType());
+                if (loaded != null) {
+                    entries.putAll(loaded);
+                }
+            } catch (Exception e) {
+                EmbeddedMC.LOGGER.warn("Ignoring unreadable jar hash cache {}", file, e);
+            }
+        }
+        return entries;
+    }
+
+    private static void save() {
+        Path file = EmbeddedMC.getInstance().getDataPath().resolve(CACHE_FILE);
+        Path temp = file.resolveSibling(CACHE_FILE + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(temp, GSON.toJson(entries));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to save jar hash cache", e);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.embeddedmc.download;
+
+import com.embeddedmc.EmbeddedMC;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Global store of server jars shared by all instances, keyed by SHA-256:
+ * {@code jars/objects/ab/<sha256>.jar}. Instances get a hardlink to the stored
+ * jar as their server.jar (a copy where hardlinks aren't supported), so five
+ * instances on the same build use the disk space once and only the first
+ * one downloads it.
+ *
+ * Downloads are found again through an alias index mapping the published
+ * checksum (Purpur only publishes MD5) and the download URL to the SHA-256.
+ */
+public final class JarStore {
+    private static final Gson GSON = new Gson();
+    private static final String INDEX_FILE = "index.json";
+    // Blobs this young are kept even if unreferenced - their download may not be linked yet
+    private static final long GC_GRACE_MS = 60 * 60 * 1000L;
+    // Alias prefix of jars compiled by SpigotBuildTools, which can't be downloaded again
+    private static final String COMPILED_ALIAS = "URL:buildtools:";
+
+    private static Map<String, String> aliases;
+
+    private JarStore() {}
+
+    public static Path getRoot() {
+        return EmbeddedMC.getInstance().getDataPath().resolve("jars");
+    }
+
+    public static Path getBlob(String sha256) {
+        return getRoot().resolve("objects").resolve(sha256.substring(0, 2)).resolve(sha256 + ".jar");
+    }
+
+    /**
+     * SHA-256 of the stored jar for a download, or null if it has to be fetched.
+     */
+    public static synchronized String find(JarDownload download) {
+        String sha256 = null;
+        if (download.checksum() != null) {
+            sha256 = "SHA-256".equalsIgnoreCase(download.algorithm())
+                    ? download.checksum()
+                    : loadAliases().get(download.algorithm().toUpperCase() + ":" + download.checksum());
+        }
+        if (sha256 == null) {
+            sha256 = loadAliases().get("URL:" + download.url());
+        }
+        return sha256 != null && Files.isRegularFile(getBlob(sha256)) ? sha256 : null;
+    }
+
+    /**
+     * Staging file for a download; stable per URL so interrupted downloads resume.
+     */
+    public static Path getStagingFile(JarDownload download) {
+        String name = HexFormat.of().formatHex(JarHashCache.newDigest("SHA-256").digest(download.url().getBytes()));
+        return getRoot().resolve("downloads").resolve(name.substring(0, 16) + ".jar");
+    }
+
+    /**
+     * Move a finished download into the store and remember its aliases.
+     */
+    public static synchronized void add(Path file, String sha256, JarDownload download) throws IOException {
+        Path blob = getBlob(sha256);
+        Files.createDirectories(blob.getParent());
+        if (Files.exists(blob)) {
+            Files.delete(file);
+        } else {
+            Files.move(file, blob, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        Map<String, String> index = loadAliases();
+        index.put("URL:" + download.url(), sha256);
+        if (download.checksum() != null && !"SHA-256".equalsIgnoreCase(download.algorithm())) {
+            index.put(download.algorithm().toUpperCase() + ":" + download.checksum(), sha256);
+        }
+        saveAliases();
+    }
+
+    /**
+     * Replace {@code target} with a hardlink to the stored jar, or a copy if
+     * the filesystem can't link. The target directory must exist. Throws {@link NoSuchFileException} if the
+     * jar was collected since it was found; the caller has to fetch it again.
+     */
+    public static synchronized void link(String sha256, Path target) throws IOException {
+        Path blob = getBlob(sha256);
+        if (!Files.isRegularFile(blob)) {
+            throw new NoSuchFileException(blob.toString(), null, "no longer in the jar store");
+        }
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, blob);
+        } catch (IOException | UnsupportedOperationException e) {
+            EmbeddedMC.LOGGER.debug("Hardlink to {} failed, copying instead", blob, e);
+            Files.copy(blob, target, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        JarHashCache.record(target, sha256);
+    }
+
+    /**
+     * Delete stored jars no instance uses any more. A blob is kept if it
+     * still has other hardlinks (where the filesystem reports link counts) or
+     * if one of the given live jars has its hash. Instance jars are links or
+     * copies, so removing a blob never breaks an instance. Compiled Spigot
+     * jars are always kept: rebuilding one takes minutes, not a download.
+     *
+     * @return number of deleted blobs
+     */
+    public static int collectGarbage(Collection<Path> liveJars) {
+        Path objects = getRoot().resolve("objects");
+        if (!Files.isDirectory(objects)) {
+            return 0;
+        }
+
+        JarHashCache.prune();
+        Set<String> live = new HashSet<>();
+        for (Path jar : liveJars) {
+            if (!Files.isRegularFile(jar)) {
+                continue;
+            }
+            String sha256 = JarHashCache.lookup(jar);
+            try {
+                live.add(sha256 != null ? sha256 : JarHashCache.hash(jar, "SHA-256"));
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.warn("Failed to hash {}", jar, e);
+            }
+        }
+
+        List<Path> blobs;
+        try (Stream<Path> walk = Files.walk(objects)) {
+            blobs = walk.filter(path -> path.getFileName().toString().endsWith(".jar")).toList();
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to list jar store", e);
+            return 0;
+        }
+
+        int deleted = 0;
+        long now = System.currentTimeMillis();
+        // Locked against link(): it either links a blob before it is checked
+        // here or finds it gone afterwards and fails, so its caller fetches again
+        synchronized (JarStore.class) {
+            for (Map.Entry<String, String> alias : loadAliases().entrySet()) {
+                if (alias.getKey().startsWith(COMPILED_ALIAS)) {
+                    live.add(alias.getValue());
+                }
+            }
+
+            for (Path blob : blobs) {
+                String sha256 = blob.getFileName().toString().replace(".jar", "");
+                try {
+                    if (live.contains(sha256) || linkCount(blob) > 1
+                            || now - Files.getLastModifiedTime(blob).toMillis() < GC_GRACE_MS) {
+                        continue;
+                    }
+                    Files.delete(blob);
+                    deleted++;
+                } catch (IOException e) {
+                    EmbeddedMC.LOGGER.warn("Failed to remove unused jar {}", blob, e);
+                }
+            }
+
+            if (deleted > 0) {
+                loadAliases().values().removeIf(sha256 -> !Files.exists(getBlob(sha256)));
+                saveAliases();
+                EmbeddedMC.LOGGER.info("Removed {} unused server jars from the store", deleted);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Hardlink count, 0 if the filesystem doesn't report it.
+     */
+    private static int linkCount(Path file) {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink");
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    private static Map<String, String> loadAliases() {
+        if (aliases != null) {
+            return aliases;
+        }
+        aliases = new TreeMap<>();
+        Path file = getRoot().resolve(INDEX_FILE);
+        if (Files.exists(file)) {
+            try {
+                Map<String, String> loaded = GSON.fromJson(Files.readString(file),
+                        new TypeToken<TreeMap<String, String>>() {}.getType());
+                if (loaded != null) {
+                    aliases.putAll(loaded);
+                }
+            } catch (Exception e) {
+                EmbeddedMC.LOGGER.warn("Ignoring unreadable jar store index {}", file, e);
+            }
+        }
+        return aliases;
+    }
+
+    private static void saveAliases() {
+        Path file = getRoot().resolve(INDEX_FILE);
+        Path temp = file.resolveSibling(INDEX_FILE + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(temp, GSON.toJson(aliases));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to save jar store index", e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.embeddedmc.download;
+
+import com.embeddedmc.EmbeddedMC;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache for the JSON responses of the Paper and Purpur APIs.
+ * Each response is stored with the time it was fetched and its ETag /
+ * Last-Modified, so an expired entry is revalidated with a conditional
+ * request that usually comes back as a bodyless 304. If the API can't be
+ * reached, the last known response is used no matter how old it is, so
+ * version lists keep working offline.
+ *
+ * Response bodies are streamed from the network straight to disk and
+ * handed to a {@link ResponseParser} as a stream from there, so callers pick
+ * out the fields they need without the document ever being in memory as a
+ * whole (build lists hold hundreds of builds with their changelogs). Only
+ * the small validators of each entry are kept in memory; the page cache
+ * keeps repeated reads of the body cheap.
+ */
+public final class MetadataCache {
+    private static final Gson GSON = new Gson();
+
+    // Lists change with every release / build; a specific build never changes
+    public static final long TTL_VERSIONS = 60 * 60 * 1000L;
+    public static final long TTL_BUILDS = 10 * 60 * 1000L;
+    public static final long TTL_IMMUTABLE = Long.MAX_VALUE;
+
+    private static final Map<String, Entry> MEMORY = new ConcurrentHashMap<>();
+    private static final Set<String> REVALIDATING = ConcurrentHashMap.newKeySet();
+
+    // The body lives in a file next to the entry, see bodyFileFor()
+    private record Entry(String url, long fetchedAt, String etag, String lastModified) {
+        boolean isFresh(long ttl) {
+            return ttl == TTL_IMMUTABLE || System.currentTimeMillis() - fetchedAt < ttl;
+        }
+    }
+
+    /**
+     * Reads what a caller needs from a response. Runtime exceptions (wrong
+     * token types, bad numbers) are reported as an invalid response.
+     */
+    @FunctionalInterface
+    public interface ResponseParser<T> {
+        T parse(JsonReader reader) throws IOException;
+    }
+
+    private MetadataCache() {}
+
+    /**
+     * Cached response if it is younger than {@code ttl}, otherwise revalidate
+     * (falling back to the stale copy if the request fails).
+     */
+    public static <T> T get(String url, long ttl, ResponseParser<T> parser) throws IOException {
+        Entry entry = lookup(url);
+        if (entry != null && entry.isFresh(ttl)) {
+            return parse(entry, parser);
+        }
+        return parse(revalidate(url, entry), parser);
+    }
+
+    /**
+     * Like {@link #get}, but an expired entry is returned right away and
+     * refreshed in the background for the next caller. Only waits for the
+     * network if nothing is cached yet.
+     */
+    public static <T> T getStaleWhileRevalidate(String url, long ttl, ResponseParser<T> parser) throws IOException {
+        Entry entry = lookup(url);
+        if (entry == null) {
+            return parse(revalidate(url, null), parser);
+        }
+        if (!entry.isFresh(ttl) && REVALIDATING.add(url)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    revalidate(url, entry);
+                } catch (IOException e) {
+                    // Already logged, the stale copy stays in use
+                } finally {
+                    REVALIDATING.remove(url);
+                }
+            });
+        }
+        return parse(entry, parser);
+    }
+
+    private static Entry revalidate(String url, Entry cached) throws IOException {
+        try {
+            Entry fetched = fetch(url, cached);
+            storeEntry(fetched);
+            return fetched;
+        } catch (IOException e) {
+            if (cached == null) {
+                throw e;
+            }
+            EmbeddedMC.LOGGER.warn("Using cached response for {} ({})", url, e.getMessage());
+            return cached;
+        }
+    }
+
+    private static Entry fetch(String url, Entry cached) throws IOException {
+        Request.Builder request = new Request.Builder().url(url).header("Accept", "application/json");
+        if (cached != null && cached.etag() != null) {
+            request.header("If-None-Match", cached.etag());
+        }
+        if (cached != null && cached.lastModified() != null) {
+            request.header("If-Modified-Since", cached.lastModified());
+        }
+
+        try (Response response = Http.api().newCall(request.build()).execute()) {
+            if (response.code() == 304 && cached != null) {
+                return new Entry(url, System.currentTimeMillis(), cached.etag(), cached.lastModified());
+            }
+            if (response.code() != 200) {
+                throw new IOException("HTTP error: " + response.code() + " for URL: " + url);
+            }
+            storeBody(url, response.body().byteStream());
+            return new Entry(url, System.currentTimeMillis(), response.header("ETag"), response.header("Last-Modified"));
+        }
+    }
+
+    private static <T> T parse(Entry entry, ResponseParser<T> parser) throws IOException {
+        try (Reader body = Files.newBufferedReader(bodyFileFor(entry.url()), StandardCharsets.UTF_8);
+             JsonReader reader = new JsonReader(body)) {
+            return parser.parse(reader);
+        } catch (IOException | RuntimeException e) {
+            throw new IOException("Invalid JSON from " + entry.url(), e);
+        }
+    }
+
+    private static Entry lookup(String url) {
+        Entry entry = MEMORY.get(url);
+        if (entry != null) {
+            return entry;
+        }
+        Path file = fileFor(url);
+        if (!Files.exists(file) || !Files.exists(bodyFileFor(url))) {
+            return null;
+        }
+        try {
+            entry = GSON.fromJson(Files.readString(file), Entry.class);
+            if (entry != null && url.equals(entry.url())) {
+                MEMORY.put(url, entry);
+                return entry;
+            }
+        } catch (Exception e) {
+            EmbeddedMC.LOGGER.warn("Ignoring unreadable API cache entry {}", file, e);
+        }
+        return null;
+    }
+
+    private static void storeEntry(Entry entry) {
+        MEMORY.put(entry.url(), entry);
+        Path file = fileFor(entry.url());
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.writeString(temp, GSON.toJson(entry));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to write API cache entry {}", file, e);
+        }
+    }
+
+    /**
+     * Copy a response body to its cache file as it arrives. Readers of the
+     * previous body keep their open file until they are done.
+     */
+    private static void storeBody(String url, InputStream body) throws IOException {
+        Path file = bodyFileFor(url);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.copy(body, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Path fileFor(String url) {
+        return cacheDir().resolve(cacheKey(url) + ".json");
+    }
+
+    private static Path bodyFileFor(String url) {
+        return cacheDir().resolve(cacheKey(url) + ".body.json");
+    }
+
+    private static Path cacheDir() {
+        return EmbeddedMC.getInstance().getDataPath().resolve("cache").resolve("api");
+    }
+
+    private static String cacheKey(String url) {
+        byte[] hash = JarHashCache.newDigest("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 12);
+    }
+}
@@ -1,80 +1,158 @@
 package com.embeddedmc.download;
 
-import com.embeddedmc.EmbeddedMC;
 import com.embeddedmc.server.ServerType;
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class PaperAPI {
-    private static final String API_BASE = "https://api.papermc.io/v2";
-    private static final String USER_AGENT = "EmbeddedMC/1.0.0 (https://github.com/marti/EmbeddedMC)";
-    private static final Gson GSON = new Gson();
+    // Overridable so the download benchmark can run against a local stand-in
+    private static final String API_BASE = System.getProperty("embeddedmc.api.paper", "https://api.papermc.io/v2");
+
+    record Application(String name, String sha256) {}
 
     public static List<String> getVersions(ServerType type) throws IOException {
         String url = API_BASE + "/projects/" + type.getProjectId();
-        JsonObject response = fetchJson(url);
-
-        List<String> versions = new ArrayList<>();
-        JsonArray versionsArray = response.getAsJsonArray("versions");
-        for (int i = versionsArray.size() - 1; i >= 0; i--) {
-            versions.add(versionsArray.get(i).getAsString());
-        }
-        return versions;
+        return MetadataCache.getStaleWhileRevalidate(url, MetadataCache.TTL_VERSIONS, ApiJson::readVersions);
     }
 
     public static int getLatestBuild(ServerType type, String version) throws IOException {
         String url = API_BASE + "/projects/" + type.getProjectId() + "/versions/" + version + "/builds";
-        JsonObject response = fetchJson(url);
+        int latest = MetadataCache.get(url, MetadataCache.TTL_BUILDS, PaperAPI::readLatestBuild);
 
-        JsonArray builds = response.getAsJsonArray("builds");
-        if (builds.isEmpty()) {
+        if (latest < 0) {
             throw new IOException("No builds found for version " + version);
         }
-
-        // Get the latest build
-        JsonObject latestBuild = builds.get(builds.size() - 1).getAsJsonObject();
-        return latestBuild.get("build").getAsInt();
+        return latest;
     }
 
-    public static String getDownloadUrl(ServerType type, String version) throws IOException {
+    public static JarDownload getDownload(ServerType type, String version) throws IOException {
         int build = getLatestBuild(type, version);
-        return getDownloadUrl(type, version, build);
+        return getDownload(type, version, build);
     }
 
-    public static String getDownloadUrl(ServerType type, String version, int build) throws IOException {
+    public static JarDownload getDownload(ServerType type, String version, int build) throws IOException {
         String url = API_BASE + "/projects/" + type.getProjectId() + "/versions/" + version + "/builds/" + build;
-        JsonObject response = fetchJson(url);
+        Application application = MetadataCache.get(url, MetadataCache.TTL_IMMUTABLE, PaperAPI::readApplication);
+
+        if (application == null) {
+            throw new IOException("No server download for " + type.getDisplayName() + " " + version + " build " + build);
+        }
+
+        String downloadUrl = API_BASE + "/projects/" + type.getProjectId() + "/versions/" + version + "/builds/" + build + "/downloads/" + application.name();
+        return application.sha256() != null
+                ? new JarDownload(downloadUrl, "SHA-256", application.sha256().toLowerCase(), build)
+                : new JarDownload(downloadUrl, null, null, build);
+    }
+
+    /**
+     * All builds of a version, newest first, with their commit summaries.
+     */
+    public static List<BuildInfo> getBuilds(ServerType type, String version) throws IOException {
+        String url = API_BASE + "/projects/" + type.getProjectId() + "/versions/" + version + "/builds";
+        return MetadataCache.get(url, MetadataCache.TTL_BUILDS, PaperAPI::readBuilds);
+    }
 
-        JsonObject downloads = response.getAsJsonObject("downloads");
-        JsonObject application = downloads.getAsJsonObject("application");
-        String fileName = application.get("name").getAsString();
+    /**
+     * Number of the newest build in a build list, -1 if there is none.
+     * Builds are listed oldest first; only the build numbers are read,
+     * changelogs are skipped.
+     */
+    static int readLatestBuild(JsonReader reader) throws IOException {
+        int last = -1;
+        reader.beginObject();
+        if (ApiJson.find(reader, "builds")) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.beginObject();
+                if (ApiJson.find(reader, "build")) {
+                    last = reader.nextInt();
+                    ApiJson.skipRest(reader);
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        }
+        return last;
+    }
 
-        return API_BASE + "/projects/" + type.getProjectId() + "/versions/" + version + "/builds/" + build + "/downloads/" + fileName;
+    /**
+     * The server jar of a build's downloads, null if it has none.
+     */
+    static Application readApplication(JsonReader reader) throws IOException {
+        reader.beginObject();
+        if (!ApiJson.find(reader, "downloads")) {
+            return null;
+        }
+        reader.beginObject();
+        if (!ApiJson.find(reader, "application")) {
+            return null;
+        }
+        String name = null;
+        String sha256 = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> name = reader.nextString();
+                case "sha256" -> sha256 = ApiJson.nextStringOrNull(reader);
+                default -> reader.skipValue();
+            }
+        }
+        return name != null ? new Application(name, sha256) : null;
     }
 
-    private static JsonObject fetchJson(String urlString) throws IOException {
-        URL url = new URL(urlString);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestProperty("User-Agent", USER_AGENT);
-        connection.setRequestProperty("Accept", "application/json");
-        connection.setConnectTimeout(10000);
-        connection.setReadTimeout(30000);
-
-        int responseCode = connection.getResponseCode();
-        if (responseCode != 200) {
-            throw new IOException("HTTP error: " + responseCode + " for URL: " + urlString);
+    static List<BuildInfo> readBuilds(JsonReader reader) throws IOException {
+        List<BuildInfo> builds = new ArrayList<>();
+        reader.beginObject();
+        if (ApiJson.find(reader, "builds")) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                builds.add(readBuild(reader));
+            }
+            reader.endArray();
         }
+        Collections.reverse(builds);
+        return builds;
+    }
+
+    private static BuildInfo readBuild(JsonReader reader) throws IOException {
+        int build = -1;
+        long time = 0;
+        String channel = null;
+        List<String> changes = new ArrayList<>();
 
-        try (InputStreamReader reader = new InputStreamReader(connection.getInputStream())) {
-            return GSON.fromJson(reader, JsonObject.class);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "build" -> build = reader.nextInt();
+                case "channel" -> channel = ApiJson.nextStringOrNull(reader);
+                case "time" -> {
+                    String value = ApiJson.nextStringOrNull(reader);
+                    try {
+                        time = value != null ? Instant.parse(value).toEpochMilli() : 0;
+                    } catch (DateTimeParseException ignored) {}
+                }
+                case "changes" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        reader.beginObject();
+                        if (ApiJson.find(reader, "summary")) {
+                            changes.add(reader.nextString());
+                            ApiJson.skipRest(reader);
+                        }
+                        reader.endObject();
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
         }
+        reader.endObject();
+        return new BuildInfo(build, time, channel, changes);
     }
 }
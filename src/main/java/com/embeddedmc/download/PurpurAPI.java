@@ -1,65 +1,146 @@
 package com.embeddedmc.download;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class PurpurAPI {
-    private static final String API_BASE = "https://api.purpurmc.org/v2";
-    private static final String USER_AGENT = "EmbeddedMC/1.0.0 (https://github.com/marti/EmbeddedMC)";
-    private static final Gson GSON = new Gson();
+    // Overridable so the download benchmark can run against a local stand-in
+    private static final String API_BASE = System.getProperty("embeddedmc.api.purpur", "https://api.purpurmc.org/v2");
 
     public static List<String> getVersions() throws IOException {
         String url = API_BASE + "/purpur";
-        JsonObject response = fetchJson(url);
-
-        List<String> versions = new ArrayList<>();
-        JsonArray versionsArray = response.getAsJsonArray("versions");
-        for (int i = versionsArray.size() - 1; i >= 0; i--) {
-            versions.add(versionsArray.get(i).getAsString());
-        }
-        return versions;
+        return MetadataCache.getStaleWhileRevalidate(url, MetadataCache.TTL_VERSIONS, ApiJson::readVersions);
     }
 
     public static String getLatestBuild(String version) throws IOException {
         String url = API_BASE + "/purpur/" + version;
-        JsonObject response = fetchJson(url);
+        String latest = MetadataCache.get(url, MetadataCache.TTL_BUILDS, PurpurAPI::readLatestBuild);
 
-        JsonObject builds = response.getAsJsonObject("builds");
-        return builds.get("latest").getAsString();
+        if (latest == null) {
+            throw new IOException("No builds found for version " + version);
+        }
+        return latest;
     }
 
-    public static String getDownloadUrl(String version) throws IOException {
+    public static JarDownload getDownload(String version) throws IOException {
         String build = getLatestBuild(version);
-        return getDownloadUrl(version, build);
+        return getDownload(version, build);
     }
 
-    public static String getDownloadUrl(String version, String build) {
-        return API_BASE + "/purpur/" + version + "/" + build + "/download";
+    public static JarDownload getDownload(String version, String build) throws IOException {
+        String url = API_BASE + "/purpur/" + version + "/" + build;
+        String md5 = MetadataCache.get(url, MetadataCache.TTL_IMMUTABLE, PurpurAPI::readMd5);
+
+        String downloadUrl = API_BASE + "/purpur/" + version + "/" + build + "/download";
+        int buildNumber = parseBuild(build);
+        if (md5 != null) {
+            return new JarDownload(downloadUrl, "MD5", md5.toLowerCase(), buildNumber);
+        }
+        return new JarDownload(downloadUrl, null, null, buildNumber);
     }
 
-    private static JsonObject fetchJson(String urlString) throws IOException {
-        URL url = new URL(urlString);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestProperty("User-Agent", USER_AGENT);
-        connection.setRequestProperty("Accept", "application/json");
-        connection.setConnectTimeout(10000);
-        connection.setReadTimeout(30000);
-
-        int responseCode = connection.getResponseCode();
-        if (responseCode != 200) {
-            throw new IOException("HTTP error: " + responseCode + " for URL: " + urlString);
+    /**
+     * All successful builds of a version, newest first, with their commit
+     * descriptions. Uses the detailed build list, so it is a single request.
+     */
+    public static List<BuildInfo> getBuilds(String version) throws IOException {
+        String url = API_BASE + "/purpur/" + version + "?detailed=true";
+        return MetadataCache.get(url, MetadataCache.TTL_BUILDS, PurpurAPI::readBuilds);
+    }
+
+    /**
+     * "latest" sits next to the list of all builds, which is skipped.
+     */
+    static String readLatestBuild(JsonReader reader) throws IOException {
+        reader.beginObject();
+        if (!ApiJson.find(reader, "builds")) {
+            return null;
         }
+        reader.beginObject();
+        return ApiJson.find(reader, "latest") ? ApiJson.nextStringOrNull(reader) : null;
+    }
+
+    static String readMd5(JsonReader reader) throws IOException {
+        reader.beginObject();
+        return ApiJson.find(reader, "md5") ? ApiJson.nextStringOrNull(reader) : null;
+    }
+
+    static List<BuildInfo> readBuilds(JsonReader reader) throws IOException {
+        List<BuildInfo> builds = new ArrayList<>();
+        reader.beginObject();
+        if (!ApiJson.find(reader, "builds")) {
+            return builds;
+        }
+        reader.beginObject();
+        if (!ApiJson.find(reader, "all")) {
+            return builds;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                // Plain build number (no details)
+                builds.add(new BuildInfo(parseBuild(reader.nextString()), 0, null, List.of()));
+                continue;
+            }
+            BuildInfo build = readBuild(reader);
+            if (build != null) {
+                builds.add(build);
+            }
+        }
+        reader.endArray();
+        Collections.reverse(builds);
+        return builds;
+    }
+
+    /**
+     * One entry of the detailed build list, null if the build failed.
+     */
+    private static BuildInfo readBuild(JsonReader reader) throws IOException {
+        String build = null;
+        String result = null;
+        long time = 0;
+        List<String> changes = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "build" -> build = reader.nextString();
+                case "result" -> result = ApiJson.nextStringOrNull(reader);
+                case "timestamp" -> time = reader.nextLong();
+                case "commits" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        reader.beginObject();
+                        if (ApiJson.find(reader, "description")) {
+                            String description = reader.nextString();
+                            changes.add(description.lines().findFirst().orElse(""));
+                            ApiJson.skipRest(reader);
+                        }
+                        reader.endObject();
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (build == null || (result != null && !"SUCCESS".equals(result))) {
+            return null;
+        }
+        return new BuildInfo(parseBuild(build), time, null, changes);
+    }
 
-        try (InputStreamReader reader = new InputStreamReader(connection.getInputStream())) {
-            return GSON.fromJson(reader, JsonObject.class);
+    private static int parseBuild(String build) {
+        try {
+            return Integer.parseInt(build);
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
 }
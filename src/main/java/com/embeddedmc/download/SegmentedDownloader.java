@@ -0,0 +1,609 @@
+package com.embeddedmc.download;
+
+import com.embeddedmc.EmbeddedMC;
+import com.google.gson.Gson;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Downloads a file over several HTTP connections at once. If the server
+ * supports range requests, the file is split into byte ranges that are
+ * fetched in parallel and written straight to their offsets in a
+ * preallocated file. Otherwise it falls back to a single stream copied with
+ * {@link FileChannel#transferFrom}.
+ *
+ * The ranges are handed out in file order, so the start of the file fills up
+ * without gaps while the download runs. The checksum is computed over that
+ * growing prefix as it appears, which leaves only the last few ranges to
+ * hash once the transfer is done instead of a second pass over the file.
+ *
+ * Data goes to {@code <target>.part}; a small journal next to it records how
+ * far each range got, so an interrupted download (network error, client
+ * restart) continues where it stopped. The target only appears, via an
+ * atomic move, once the download is complete and verified.
+ */
+public class SegmentedDownloader {
+    private static final int HTTP_PARTIAL = 206;
+    private static final Gson GSON = new Gson();
+    // Smaller files aren't worth the extra connections
+    private static final long MIN_SEGMENT_BYTES = 1024 * 1024;
+    // Ranges per connection; more keep the contiguous prefix (and the hash) moving
+    private static final int SEGMENTS_PER_CONNECTION = 4;
+    private static final int SEGMENT_RETRIES = 3;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 100;
+    private static final long JOURNAL_INTERVAL_MS = 1000;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService SEGMENT_POOL = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "EmbeddedMC-Download-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String url;
+    private final Path target;
+    private final Path partFile;
+    private final Path journalFile;
+    private final int connections;
+    private final Consumer<DownloadManager.DownloadProgress> progressCallback;
+    private DownloadScheduler.Job job;
+
+    private final AtomicLong downloaded = new AtomicLong();
+    private final Set<Call> activeCalls = ConcurrentHashMap.newKeySet();
+    private long totalSize = -1;
+
+    private String expectedAlgorithm;
+    private String expectedChecksum;
+    private PrefixDigest digest;
+    private String sha256;
+
+    // Range layout of the current download; positions[i] is the next byte of range i
+    private long[] starts;
+    private long[] ends;
+    private AtomicLongArray positions;
+    private Probe probe;
+
+    /**
+     * Persistent state of an unfinished download. The validator (ETag or
+     * Last-Modified) makes sure a resumed download continues the same file.
+     */
+    private record Journal(String url, long totalSize, String validator, long[] starts, long[] ends, long[] positions) {}
+
+    private record Probe(long totalSize, String validator) {}
+
+    public SegmentedDownloader(String url, Path target, int connections, Consumer<DownloadManager.DownloadProgress> progressCallback) {
+        this.url = url;
+        this.target = target;
+        this.partFile = target.resolveSibling(target.getFileName() + ".part");
+        this.journalFile = target.resolveSibling(target.getFileName() + ".part.json");
+        this.connections = Math.max(1, connections);
+        this.progressCallback = progressCallback;
+    }
+
+    /**
+     * Check the finished file against a published checksum before it
+     * replaces the target.
+     *
+     * @param algorithm MessageDigest name, e.g. "SHA-256" or "MD5"
+     * @param checksum  expected digest as hex
+     */
+    public SegmentedDownloader expectChecksum(String algorithm, String checksum) {
+        this.expectedAlgorithm = algorithm;
+        this.expectedChecksum = checksum;
+        return this;
+    }
+
+    /**
+     * Transfer under a scheduler job: reads are throttled to the bandwidth
+     * cap, and a held background job pauses between range requests.
+     */
+    public SegmentedDownloader scheduledBy(DownloadScheduler.Job job) {
+        this.job = job;
+        return this;
+    }
+
+    /**
+     * SHA-256 of the downloaded file as hex, available after {@link #download()}.
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void download() throws IOException {
+        Files.createDirectories(target.getParent());
+
+        probe = probeRangeSupport();
+        totalSize = probe.totalSize();
+        digest = new PrefixDigest(expectedAlgorithm);
+
+        try {
+            if (totalSize > 0) {
+                if (!resumeFromJournal()) {
+                    planSegments();
+                }
+                downloadSegments();
+            } else {
+                // No ranges - nothing to resume, start over
+                discardPart();
+                downloadSingleStream();
+            }
+
+            verify();
+        } finally {
+            digest.close();
+        }
+        Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(journalFile);
+
+        report(downloaded.get(), 0, "Complete!");
+    }
+
+    /**
+     * Ask for the first byte only. A 206 with a Content-Range total means the
+     * server honors ranges; the total is -1 if ranges aren't supported.
+     */
+    private Probe probeRangeSupport() throws IOException {
+        Request request = request().header("Range", "bytes=0-0").build();
+        try (Response response = Http.download().newCall(request).execute()) {
+            if (response.code() != HTTP_PARTIAL) {
+                return new Probe(-1, null);
+            }
+            String contentRange = response.header("Content-Range");
+            if (contentRange == null || !contentRange.contains("/")) {
+                return new Probe(-1, null);
+            }
+            String total = contentRange.substring(contentRange.lastIndexOf('/') + 1).trim();
+            String validator = response.header("ETag");
+            if (validator == null) {
+                validator = response.header("Last-Modified");
+            }
+            return new Probe(total.equals("*") ? -1 : Long.parseLong(total), validator);
+        } catch (NumberFormatException e) {
+            return new Probe(-1, null);
+        }
+    }
+
+    /**
+     * Pick up the ranges of an earlier attempt if the journal belongs to the
+     * same file and the .part file is intact.
+     */
+    private boolean resumeFromJournal() {
+        if (!Files.exists(journalFile) || !Files.exists(partFile)) {
+            return false;
+        }
+        try {
+            Journal journal = GSON.fromJson(Files.readString(journalFile), Journal.class);
+            if (journal == null || !url.equals(journal.url()) || journal.totalSize() != totalSize
+                    || !Objects.equals(journal.validator(), probe.validator())
+                    || Files.size(partFile) != totalSize
+                    || journal.starts().length != journal.positions().length) {
+                discardPart();
+                return false;
+            }
+
+            starts = journal.starts();
+            ends = journal.ends();
+            positions = new AtomicLongArray(journal.positions());
+            long done = 0;
+            for (int i = 0; i < starts.length; i++) {
+                done += positions.get(i) - starts[i];
+            }
+            downloaded.set(done);
+            EmbeddedMC.LOGGER.info("Resuming download of {} at {} of {} bytes", url, done, totalSize);
+            return true;
+        } catch (Exception e) {
+            EmbeddedMC.LOGGER.warn("Ignoring unreadable download journal {}", journalFile, e);
+            discardPart();
+            return false;
+        }
+    }
+
+    private void planSegments() throws IOException {
+        long segmentSize = Math.max(MIN_SEGMENT_BYTES, (totalSize + connections * SEGMENTS_PER_CONNECTION - 1)
+                / (connections * SEGMENTS_PER_CONNECTION));
+        int segments = (int) ((totalSize + segmentSize - 1) / segmentSize);
+
+        starts = new long[segments];
+        ends = new long[segments];
+        positions = new AtomicLongArray(segments);
+        for (int i = 0; i < segments; i++) {
+            starts[i] = i * segmentSize;
+            ends[i] = Math.min(totalSize, starts[i] + segmentSize) - 1;
+            positions.set(i, starts[i]);
+        }
+        downloaded.set(0);
+
+        // Preallocate so every range writes into its final place
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(new byte[1]), totalSize - 1);
+        }
+        saveJournal(null);
+        EmbeddedMC.LOGGER.info("Downloading {} in {} segments over {} connections", url, segments,
+                Math.min(connections, segments));
+    }
+
+    private void downloadSegments() throws IOException {
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.WRITE)) {
+            // Each connection takes the next unfinished range in file order
+            AtomicInteger nextSegment = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < Math.min(connections, starts.length); i++) {
+                futures.add(SEGMENT_POOL.submit(() -> {
+                    int index;
+                    while ((index = nextSegment.getAndIncrement()) < starts.length) {
+                        if (positions.get(index) <= ends[index]) {
+                            downloadRange(channel, index);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            try {
+                awaitWithProgress(futures, channel);
+            } finally {
+                saveJournal(channel);
+            }
+        }
+    }
+
+    /**
+     * Fetch the rest of range {@code index} into the channel, continuing from
+     * the last written byte if the connection drops or the job yields.
+     */
+    private void downloadRange(FileChannel channel, int index) throws IOException {
+        long end = ends[index];
+        int failures = 0;
+
+        while (positions.get(index) <= end) {
+            if (job != null) {
+                job.checkpoint();
+            }
+            long position = positions.get(index);
+            Request.Builder request = request().header("Range", "bytes=" + position + "-" + end);
+            if (probe.validator() != null) {
+                // The server answers 200 instead of 206 if the file changed meanwhile
+                request.header("If-Range", probe.validator());
+            }
+            Call call = Http.download().newCall(request.build());
+            activeCalls.add(call);
+            try (Response response = call.execute()) {
+                if (response.code() != HTTP_PARTIAL) {
+                    throw new IOException("HTTP error: " + response.code() + " for range request");
+                }
+
+                try (ReadableByteChannel in = Channels.newChannel(response.body().byteStream())) {
+                    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+                    while (position <= end) {
+                        buffer.clear();
+                        buffer.limit((int) Math.min(BUFFER_BYTES, end - position + 1));
+                        int read = in.read(buffer);
+                        if (read < 0) {
+                            throw new IOException("Connection closed at byte " + position);
+                        }
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            position += channel.write(buffer, position);
+                        }
+                        positions.set(index, position);
+                        downloaded.addAndGet(read);
+                        if (job != null) {
+                            job.throttle(read);
+                            if (job.shouldYield()) {
+                                // Drop the connection, the range continues after the checkpoint
+                                break;
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (call.isCanceled() || ++failures > SEGMENT_RETRIES) {
+                    throw e;
+                }
+                EmbeddedMC.LOGGER.warn("Segment {}-{} failed at byte {}, retrying: {}",
+                        starts[index], end, positions.get(index), e.getMessage());
+            } finally {
+                activeCalls.remove(call);
+            }
+        }
+    }
+
+    private void awaitWithProgress(List<Future<?>> futures, FileChannel channel) throws IOException {
+        ThroughputMeter meter = new ThroughputMeter(downloaded.get());
+        long lastJournal = System.currentTimeMillis();
+        try {
+            for (Future<?> future : futures) {
+                while (true) {
+                    try {
+                        future.get(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        reportProgress(meter);
+                        digest.advance(contiguousBytes());
+                        if (System.currentTimeMillis() - lastJournal >= JOURNAL_INTERVAL_MS) {
+                            lastJournal = System.currentTimeMillis();
+                            saveJournal(channel);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            cancel(futures);
+            throw e;
+        } catch (ExecutionException e) {
+            cancel(futures);
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Download failed", e.getCause());
+        } catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrupted", e);
+        }
+    }
+
+    private void cancel(List<Future<?>> futures) {
+        futures.forEach(future -> future.cancel(true));
+        activeCalls.forEach(Call::cancel);
+    }
+
+    /**
+     * Length of the gap-free start of the file.
+     */
+    private long contiguousBytes() {
+        for (int i = 0; i < starts.length; i++) {
+            if (positions.get(i) <= ends[i]) {
+                return positions.get(i);
+            }
+        }
+        return totalSize;
+    }
+
+    /**
+     * Record the range positions. The data is flushed first so the journal
+     * never claims bytes that aren't on disk.
+     */
+    private void saveJournal(FileChannel channel) {
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.force(false);
+            }
+            long[] snapshot = new long[positions.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = positions.get(i);
+            }
+            Journal journal = new Journal(url, totalSize, probe.validator(), starts, ends, snapshot);
+            Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+            Files.writeString(temp, GSON.toJson(journal));
+            Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to save download journal {}", journalFile, e);
+        }
+    }
+
+    private void discardPart() {
+        try {
+            Files.deleteIfExists(partFile);
+            Files.deleteIfExists(journalFile);
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to remove partial download {}", partFile, e);
+        }
+    }
+
+    private void downloadSingleStream() throws IOException {
+        try (Response response = Http.download().newCall(request().build()).execute()) {
+            if (response.code() != 200) {
+                throw new IOException("HTTP error: " + response.code());
+            }
+            totalSize = response.body().contentLength();
+            downloaded.set(0);
+
+            ThroughputMeter meter = new ThroughputMeter(0);
+            try (InputStream stream = response.body().byteStream();
+                 ReadableByteChannel in = Channels.newChannel(stream);
+                 FileChannel out = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = 0;
+                while (true) {
+                    // Bounded steps so progress can be reported in between;
+                    // the source blocks, so 0 means end of stream
+                    long transferred = out.transferFrom(in, position, BUFFER_BYTES * 16L);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                    downloaded.addAndGet(transferred);
+                    reportProgress(meter);
+                    digest.advance(position);
+                    if (job != null) {
+                        // Without ranges there's no resuming, so a held job waits with the stream open
+                        job.throttle(transferred);
+                        job.checkpoint();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Make sure the .part file is complete and matches the expected checksum
+     * before it replaces the target.
+     */
+    private void verify() throws IOException {
+        long size = Files.size(partFile);
+        if (totalSize > 0 && size != totalSize) {
+            discardPart();
+            throw new IOException("Download incomplete: " + size + " of " + totalSize + " bytes");
+        }
+        if (positions != null) {
+            for (int i = 0; i < starts.length; i++) {
+                if (positions.get(i) <= ends[i]) {
+                    throw new IOException("Download incomplete: range " + starts[i] + "-" + ends[i] + " missing");
+                }
+            }
+        }
+
+        digest.advance(size);
+        sha256 = digest.sha256();
+        if (expectedChecksum != null) {
+            String actual = digest.expected();
+            if (!actual.equalsIgnoreCase(expectedChecksum)) {
+                discardPart();
+                throw new IOException("Checksum mismatch: expected " + expectedAlgorithm + " " + expectedChecksum
+                        + " but got " + actual);
+            }
+            EmbeddedMC.LOGGER.info("Verified {} {}", expectedAlgorithm, actual);
+        }
+    }
+
+    private Request.Builder request() {
+        return new Request.Builder().url(url);
+    }
+
+    private void reportProgress(ThroughputMeter meter) {
+        if (!meter.update(downloaded.get())) {
+            return;
+        }
+        long done = downloaded.get();
+        String status;
+        if (totalSize > 0) {
+            int percent = (int) (done * 100 / totalSize);
+            status = String.format("Downloading... %d%% (%.1f MB / %.1f MB)",
+                    percent, done / 1024.0 / 1024.0, totalSize / 1024.0 / 1024.0);
+        } else {
+            status = String.format("Downloading... %.1f MB", done / 1024.0 / 1024.0);
+        }
+        report(done, meter.bytesPerSecond(), status);
+    }
+
+    private void report(long done, long bytesPerSecond, String status) {
+        if (progressCallback == null) {
+            return;
+        }
+        long eta = bytesPerSecond > 0 && totalSize > 0 ? (totalSize - done) / bytesPerSecond : -1;
+        progressCallback.accept(new DownloadManager.DownloadProgress(done, totalSize, status, bytesPerSecond, eta));
+    }
+
+    /**
+     * Hashes the .part file front to back as far as it has been written. Reads
+     * come from the page cache since the data was just written. Always
+     * computes SHA-256, plus the expected algorithm if that is a different one.
+     */
+    private class PrefixDigest {
+        private final MessageDigest sha = JarHashCache.newDigest("SHA-256");
+        private final MessageDigest extra;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES * 4);
+        private FileChannel channel;
+        private long hashed;
+        private String shaHex;
+
+        PrefixDigest(String algorithm) {
+            extra = algorithm == null || algorithm.equalsIgnoreCase("SHA-256") ? null : JarHashCache.newDigest(algorithm);
+        }
+
+        void advance(long upTo) throws IOException {
+            if (upTo <= hashed) {
+                return;
+            }
+            if (channel == null) {
+                channel = FileChannel.open(partFile, StandardOpenOption.READ);
+            }
+            while (hashed < upTo) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), upTo - hashed));
+                int read = channel.read(buffer, hashed);
+                if (read <= 0) {
+                    throw new IOException("Unexpected end of " + partFile + " at byte " + hashed);
+                }
+                buffer.flip();
+                sha.update(buffer.duplicate());
+                if (extra != null) {
+                    extra.update(buffer);
+                }
+                hashed += read;
+            }
+        }
+
+        String sha256() {
+            if (shaHex == null) {
+                shaHex = HexFormat.of().formatHex(sha.digest());
+            }
+            return shaHex;
+        }
+
+        /**
+         * Digest in the expected algorithm.
+         */
+        String expected() {
+            return extra != null ? HexFormat.of().formatHex(extra.digest()) : sha256();
+        }
+
+        void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Smoothed transfer rate, sampled at most every PROGRESS_INTERVAL_MS.
+     */
+    private static class ThroughputMeter {
+        private long lastTime = System.nanoTime();
+        private long lastBytes;
+        private double rate = 0;
+
+        ThroughputMeter(long initialBytes) {
+            this.lastBytes = initialBytes;
+        }
+
+        boolean update(long bytes) {
+            long now = System.nanoTime();
+            long elapsed = now - lastTime;
+            if (elapsed < PROGRESS_INTERVAL_MS * 1_000_000) {
+                return false;
+            }
+            double sample = (bytes - lastBytes) * 1e9 / elapsed;
+            rate = rate == 0 ? sample : rate * 0.7 + sample * 0.3;
+            lastTime = now;
+            lastBytes = bytes;
+            return true;
+        }
+
+        long bytesPerSecond() {
+            return (long) rate;
+        }
+    }
+}
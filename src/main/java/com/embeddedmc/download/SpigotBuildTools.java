@@ -0,0 +1,270 @@
+package com.embeddedmc.download;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.download.DownloadManager.DownloadProgress;
+import com.embeddedmc.server.ServerType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Spigot jars aren't distributed, they have to be compiled with SpigotMC's
+ * BuildTools. Builds run one at a time on a background worker in
+ * {@code buildtools/}, which keeps BuildTools' git checkouts, its Maven
+ * install and a Maven repository between builds, so only the first build
+ * pays for cloning and fetching dependencies.
+ *
+ * The output jar goes into the {@link JarStore} under a per-version alias,
+ * so each Spigot version is compiled once and then linked like a download.
+ * BuildTools needs git (it brings its own on Windows) and a JDK matching the
+ * Minecraft version; it uses the configured Java path.
+ */
+public final class SpigotBuildTools {
+    private static final String BUILDTOOLS_URL = "https://hub.spigotmc.org/jenkins/job/BuildTools/lastSuccessfulBuild/artifact/target/BuildTools.jar";
+    // BuildTools is only updated now and then
+    private static final long BUILDTOOLS_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+    private static final Pattern RELEASE = Pattern.compile("\\d+\\.\\d+(\\.\\d+)?");
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final int MAX_STATUS_LENGTH = 60;
+
+    // Versions being compiled; callers for the same version share the build
+    private static final Map<String, Build> BUILDS = new ConcurrentHashMap<>();
+
+    // One build at a time, they share the work tree and the Maven repository
+    private static final ExecutorService BUILD_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "EmbeddedMC-BuildTools");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SpigotBuildTools() {}
+
+    public static Path getWorkDir() {
+        return EmbeddedMC.getInstance().getDataPath().resolve("buildtools");
+    }
+
+    /**
+     * Versions BuildTools can build, newest first. SpigotMC has no version
+     * API, so this is the list of Minecraft releases Paper knows about; both
+     * start at 1.8.8.
+     */
+    public static List<String> getVersions() throws IOException {
+        List<String> versions = new ArrayList<>();
+        for (String version : PaperAPI.getVersions(ServerType.PAPER)) {
+            if (RELEASE.matcher(version).matches()) {
+                versions.add(version);
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Whether a version has been compiled and is still in the store.
+     */
+    public static boolean isBuilt(String version) {
+        return JarStore.find(storeKey(version)) != null;
+    }
+
+    /**
+     * Get the Spigot jar for a version into the store, compiling it if it
+     * isn't there yet, and return its SHA-256. Blocks until the build is
+     * done.
+     */
+    public static String build(String version, Consumer<DownloadProgress> progressCallback) throws IOException {
+        String stored = JarStore.find(storeKey(version));
+        if (stored != null) {
+            EmbeddedMC.LOGGER.info("Using stored Spigot {} JAR {}", version, stored);
+            return stored;
+        }
+
+        Build created = new Build();
+        Build build = BUILDS.putIfAbsent(version, created);
+        if (build == null) {
+            build = created;
+            created.report(new DownloadProgress(0, 0, "Waiting for other Spigot builds..."));
+            BUILD_EXECUTOR.execute(() -> run(version, created));
+        }
+        build.listen(progressCallback);
+        try {
+            return build.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Spigot build failed", e.getCause());
+        } finally {
+            build.listeners.remove(progressCallback);
+        }
+    }
+
+    private static void run(String version, Build build) {
+        JarDownload key = storeKey(version);
+        try {
+            // Another build may have finished it between the lookup and now
+            String sha256 = JarStore.find(key);
+            if (sha256 == null) {
+                Path buildTools = updateBuildTools(build::report);
+                Path output = compile(buildTools, version, build::report);
+                build.report(new DownloadProgress(0, 0, "Storing Spigot " + version + "..."));
+                sha256 = JarHashCache.hash(output, "SHA-256");
+                JarStore.add(output, sha256, key);
+                EmbeddedMC.LOGGER.info("Spigot {} built", version);
+            }
+            build.result.complete(sha256);
+        } catch (Exception e) {
+            build.result.completeExceptionally(e);
+        } finally {
+            BUILDS.remove(version, build);
+        }
+    }
+
+    /**
+     * BuildTools.jar in the work directory, downloaded again once it is a
+     * week old. An old copy is still used if that fails.
+     */
+    private static Path updateBuildTools(Consumer<DownloadProgress> progressCallback) throws IOException {
+        Path jar = getWorkDir().resolve("BuildTools.jar");
+        if (Files.isRegularFile(jar)
+                && System.currentTimeMillis() - Files.getLastModifiedTime(jar).toMillis() < BUILDTOOLS_MAX_AGE_MS) {
+            return jar;
+        }
+
+        Files.createDirectories(jar.getParent());
+        try (DownloadScheduler.Job job = DownloadScheduler.newJob(DownloadScheduler.Priority.FOREGROUND)) {
+            job.awaitTurn(() -> progressCallback.accept(new DownloadProgress(0, 0, "Waiting for other downloads...")));
+            EmbeddedMC.LOGGER.info("Downloading BuildTools");
+            new SegmentedDownloader(BUILDTOOLS_URL, jar, 1, progressCallback)
+                    .scheduledBy(job)
+                    .download();
+        } catch (IOException e) {
+            if (!Files.isRegularFile(jar)) {
+                throw e;
+            }
+            EmbeddedMC.LOGGER.warn("Could not update BuildTools, using the old one: {}", e.getMessage());
+        }
+        return jar;
+    }
+
+    /**
+     * Run BuildTools for a version and return the jar it produced. Its output
+     * goes to {@code buildtools/logs/<version>.log}.
+     */
+    private static Path compile(Path buildTools, String version, Consumer<DownloadProgress> progressCallback) throws IOException {
+        Path root = getWorkDir().toAbsolutePath();
+        Path workDir = root.resolve("work");
+        Path outputDir = root.resolve("output");
+        Path logFile = root.resolve("logs").resolve(version + ".log");
+        Files.createDirectories(workDir);
+        Files.createDirectories(outputDir);
+        Files.createDirectories(logFile.getParent());
+
+        String fileName = "spigot-" + version + ".jar";
+        Path output = outputDir.resolve(fileName);
+        Files.deleteIfExists(output);
+
+        List<String> command = List.of(
+                EmbeddedMC.getInstance().getConfig().getJavaPath(),
+                "-Xmx1024M",
+                "-jar", buildTools.toAbsolutePath().toString(),
+                "--nogui",
+                "--rev", version,
+                "--compile", "SPIGOT",
+                "--output-dir", outputDir.toString(),
+                "--final-name", fileName
+        );
+        EmbeddedMC.LOGGER.info("Building Spigot {} with command: {}", version, String.join(" ", command));
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(workDir.toFile());
+        pb.redirectErrorStream(true);
+
+        // Keep Maven's downloads next to the work tree. MAVEN_OPTS is split on
+        // spaces by the mvn script, so a path with spaces stays on ~/.m2.
+        Path mavenRepo = root.resolve("m2");
+        if (mavenRepo.toString().chars().anyMatch(Character::isWhitespace)) {
+            EmbeddedMC.LOGGER.warn("Data path contains spaces, BuildTools will use the default Maven repository");
+        } else {
+            pb.environment().put("MAVEN_OPTS", "-Xmx1024M -Dmaven.repo.local=" + mavenRepo);
+        }
+
+        Process process = pb.start();
+        try (BufferedReader reader = process.inputReader();
+             BufferedWriter log = Files.newBufferedWriter(logFile)) {
+            long lastReport = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.write(line);
+                log.newLine();
+
+                long now = System.currentTimeMillis();
+                String status = line.strip();
+                if (!status.isEmpty() && now - lastReport >= PROGRESS_INTERVAL_MS) {
+                    lastReport = now;
+                    if (status.length() > MAX_STATUS_LENGTH) {
+                        status = status.substring(0, MAX_STATUS_LENGTH) + "...";
+                    }
+                    progressCallback.accept(new DownloadProgress(0, 0, "Building Spigot " + version + ": " + status));
+                }
+            }
+        }
+
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while building Spigot " + version, e);
+        }
+        if (exitCode != 0 || !Files.isRegularFile(output)) {
+            throw new IOException("BuildTools failed for Spigot " + version + " (exit code " + exitCode + "), see " + logFile);
+        }
+        return output;
+    }
+
+    /**
+     * Stands in for a download URL in the store's alias index.
+     */
+    private static JarDownload storeKey(String version) {
+        return JarDownload.unverified("buildtools:spigot:" + version);
+    }
+
+    /**
+     * A build that several callers may wait for.
+     */
+    private static final class Build {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final List<Consumer<DownloadProgress>> listeners = new CopyOnWriteArrayList<>();
+        volatile DownloadProgress last;
+
+        void listen(Consumer<DownloadProgress> listener) {
+            if (listener != null) {
+                listeners.add(listener);
+                DownloadProgress progress = last;
+                if (progress != null) {
+                    listener.accept(progress);
+                }
+            }
+        }
+
+        void report(DownloadProgress progress) {
+            last = progress;
+            listeners.forEach(listener -> listener.accept(progress));
+        }
+    }
+}
@@ -2,35 +2,85 @@ package com.embeddedmc.server;
 
 import com.embeddedmc.EmbeddedMC;
 import com.embeddedmc.config.ServerInstance;
+import com.embeddedmc.download.JarHashCache;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class EmbeddedServer {
     private static final int MAX_CONSOLE_LINES = 500;
+    private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+    // A save that hasn't reported "Saved the game" by then is counted as failed
+    private static final long SAVE_TIMEOUT_MS = 60_000;
+    // Failed saves in a row before the server's own autosave is turned back on
+    private static final int MAX_FAILED_SAVES = 3;
+    // How long stop() waits for a cancelled launch to wind down
+    private static final long LAUNCH_CANCEL_TIMEOUT_MS = 5_000;
+    // Vanilla connection lines, which plugins can't change like they can join/leave messages.
+    // Anchored behind the log prefix ("[12:00:00 INFO]: ") so chat can't fake them.
+    private static final Pattern LOGIN = Pattern.compile("^(?:\\[[^\\]]*\\]\\s*)+: ([^\\s\\[]+)\\[[^\\]]*\\] logged in with entity id ");
+    private static final Pattern DISCONNECT = Pattern.compile("^(?:\\[[^\\]]*\\]\\s*)+: ([^\\s\\[]+) lost connection: ");
+    private static final Pattern ANSI_CODE = Pattern.compile("\\u001B\\[[;\\d]*m");
 
     private final ServerInstance instance;
-    private Process process;
+    private final PortAllocator portAllocator;
+    private volatile PortAllocator.Lease portLease;
+    private volatile Process process;
     private Thread outputThread;
     private volatile boolean running = false;
+    private volatile boolean launching = false;
+    // A stop() while launching cancels the launch before the process is spawned
+    private final Object launchLock = new Object();
+    private volatile boolean stopRequested = false;
+    private volatile CompletableFuture<Void> launch = CompletableFuture.completedFuture(null);
+
+    // Player tracking for hibernation (parsed from login/disconnect console lines)
+    private final Set<String> onlinePlayers = ConcurrentHashMap.newKeySet();
+    private volatile long lastActivity = System.currentTimeMillis();
+    private volatile boolean hibernated = false;
+    private volatile boolean tickFrozen = false;
+
+    // Managed saving (periodic autosave is turned off while EmbeddedMC schedules saves)
+    private volatile long saveStartedAt = 0;
+    private volatile long lastSaveTime = System.currentTimeMillis();
+    private volatile long lastSaveDurationMs = -1;
+    private final AtomicInteger failedSaves = new AtomicInteger();
+    private volatile boolean backupRunning = false;
+    // Set if saving was turned off for the running backup and has to be turned back on
+    private volatile boolean backupSavesOff = false;
 
     // Console log buffer
     private final LinkedList<String> consoleBuffer = new LinkedList<>();
     private final List<Consumer<String>> consoleListeners = new ArrayList<>();
 
-    public EmbeddedServer(ServerInstance instance) {
+    public EmbeddedServer(ServerInstance instance, PortAllocator portAllocator) {
         this.instance = instance;
+        this.portAllocator = portAllocator;
+    }
+
+    public ServerInstance getInstance() {
+        return instance;
     }
 
     public void addConsoleListener(Consumer<String> listener) {
@@ -73,6 +123,10 @@ public class EmbeddedServer {
         if (!running || process == null) {
             return;
         }
+        // A frozen process would never read the command
+        if (hibernated) {
+            resume();
+        }
         try {
             OutputStream os = process.getOutputStream();
             os.write((command + "\n").getBytes());
@@ -95,16 +149,18 @@ public class EmbeddedServer {
             return false;
         }
 
-        // Check if port is available before starting
-        if (isPortInUse(instance.getPort())) {
-            EmbeddedMC.LOGGER.error("Port {} is already in use! Cannot start server.", instance.getPort());
+        // Reserve the port (moves the instance to a free port if its own is taken)
+        portLease = portAllocator.acquire(instance);
+        if (portLease == null) {
             instance.setStatus(ServerInstance.ServerStatus.ERROR);
             return false;
         }
 
         instance.setStatus(ServerInstance.ServerStatus.STARTING);
+        stopRequested = false;
+        launching = true;
 
-        CompletableFuture.runAsync(() -> {
+        launch = CompletableFuture.runAsync(() -> {
             try {
                 // Accept EULA if configured
                 if (EmbeddedMC.getInstance().getConfig().isAutoAcceptEula()) {
@@ -114,6 +170,18 @@ public class EmbeddedServer {
                 // Configure server for embedded mode (offline mode, correct port)
                 instance.configureForEmbeddedMode();
 
+                // Only re-hashes the jar if it was touched since it was verified
+                if (!JarHashCache.check(instance.getServerJar())) {
+                    // Keep it for inspection; without a server.jar the next start downloads a fresh one
+                    Path changed = instance.getServerJar().resolveSibling("server.jar.changed");
+                    Files.move(instance.getServerJar(), changed, StandardCopyOption.REPLACE_EXISTING);
+                    EmbeddedMC.LOGGER.error("Server JAR of {} no longer matches its download, moved it to {}",
+                            instance.getName(), changed);
+                    instance.setStatus(ServerInstance.ServerStatus.ERROR);
+                    releasePort();
+                    return;
+                }
+
                 // Build command
                 List<String> command = buildCommand();
                 EmbeddedMC.LOGGER.info("Starting server with command: {}", String.join(" ", command));
@@ -123,8 +191,18 @@ public class EmbeddedServer {
                 pb.directory(instance.getInstancePath().toFile());
                 pb.redirectErrorStream(true);
 
-                process = pb.start();
-                running = true;
+                synchronized (launchLock) {
+                    if (stopRequested) {
+                        EmbeddedMC.LOGGER.info("Start of server {} cancelled", instance.getName());
+                        releasePort();
+                        instance.setStatus(ServerInstance.ServerStatus.STOPPED);
+                        return;
+                    }
+                    // Hand the port over to the server as late as possible
+                    portLease.releaseSocket();
+                    process = pb.start();
+                    running = true;
+                }
 
                 // Monitor output
                 outputThread = new Thread(() -> monitorOutput(onReady), "EmbeddedServer-" + instance.getId());
@@ -134,6 +212,9 @@ public class EmbeddedServer {
                 EmbeddedMC.LOGGER.error("Failed to start server", e);
                 instance.setStatus(ServerInstance.ServerStatus.ERROR);
                 running = false;
+                releasePort();
+            } finally {
+                launching = false;
             }
         });
 
@@ -167,7 +248,8 @@ public class EmbeddedServer {
         command.add("--port");
         command.add(String.valueOf(instance.getPort()));
 
-        return command;
+        // CPU affinity, nice/ionice and cgroup limits (Linux only)
+        return ProcessIsolation.wrapCommand(instance, command);
     }
 
     private void monitorOutput(Runnable onReady) {
@@ -178,14 +260,21 @@ public class EmbeddedServer {
             while ((line = reader.readLine()) != null && running) {
                 EmbeddedMC.LOGGER.info("[{}] {}", instance.getName(), line);
                 addConsoleLine(line);
+                trackPlayers(line);
+                trackSaves(line);
 
                 // Detect server ready - look for the specific "Done" message with timing info
                 if (!serverReady && line.contains("Done (") && line.contains("s)!")) {
                     // Wait for port to actually be accepting connections
                     if (waitForPort(instance.getPort(), 30)) {
                         serverReady = true;
+                        lastActivity = System.currentTimeMillis();
                         instance.setStatus(ServerInstance.ServerStatus.RUNNING);
                         EmbeddedMC.LOGGER.info("Server {} is ready and accepting connections!", instance.getName());
+                        if (EmbeddedMC.getInstance().getConfig().isManagedAutosave()) {
+                            // We schedule saves ourselves (pause menu, idle, safety interval)
+                            sendCommand("save-off");
+                        }
                         if (onReady != null) {
                             onReady.run();
                         }
@@ -202,10 +291,23 @@ public class EmbeddedServer {
         }
 
         running = false;
+        hibernated = false;
+        tickFrozen = false;
+        saveStartedAt = 0;
+        onlinePlayers.clear();
+        releasePort();
         instance.setStatus(ServerInstance.ServerStatus.STOPPED);
         EmbeddedMC.LOGGER.info("Server {} stopped", instance.getName());
     }
 
+    private void releasePort() {
+        PortAllocator.Lease lease = portLease;
+        if (lease != null) {
+            lease.close();
+            portLease = null;
+        }
+    }
+
     private boolean waitForPort(int port, int timeoutSeconds) {
         long start = System.currentTimeMillis();
         long timeout = timeoutSeconds * 1000L;
@@ -227,10 +329,38 @@ public class EmbeddedServer {
     }
 
     public void stop() {
+        boolean cancelLaunch;
+        synchronized (launchLock) {
+            cancelLaunch = launching && process == null;
+            if (cancelLaunch) {
+                stopRequested = true;
+            }
+        }
+        if (cancelLaunch) {
+            // The launch checks the flag under the lock, so it never spawns the process.
+            // Wait a little for it to finish writing the instance files, but don't hang
+            // the caller on a slow disk.
+            try {
+                launch.get(LAUNCH_CANCEL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                EmbeddedMC.LOGGER.warn("Cancelled start of server {} is still winding down", instance.getName());
+            } catch (ExecutionException ignored) {
+                // The launch logged its own failure
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
         if (!running || process == null) {
             return;
         }
 
+        // Thaw first, otherwise the stop command is never processed
+        if (hibernated) {
+            resume();
+        }
+
         instance.setStatus(ServerInstance.ServerStatus.STOPPING);
         EmbeddedMC.LOGGER.info("Stopping server {}...", instance.getName());
 
@@ -257,8 +387,286 @@ public class EmbeddedServer {
         instance.setStatus(ServerInstance.ServerStatus.STOPPED);
     }
 
+    private void trackPlayers(String line) {
+        line = ANSI_CODE.matcher(line).replaceAll("");
+        Matcher login = LOGIN.matcher(line);
+        if (login.find()) {
+            onlinePlayers.add(login.group(1));
+            lastActivity = System.currentTimeMillis();
+            return;
+        }
+        // Connections dropped before login are logged with their address, not a player name
+        Matcher disconnect = DISCONNECT.matcher(line);
+        if (disconnect.find() && onlinePlayers.remove(disconnect.group(1))) {
+            lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    private void trackSaves(String line) {
+        if (saveStartedAt > 0 && line.contains("Saved the game")) {
+            long now = System.currentTimeMillis();
+            lastSaveDurationMs = now - saveStartedAt;
+            lastSaveTime = now;
+            saveStartedAt = 0;
+            failedSaves.set(0);
+            addConsoleLine("[EmbeddedMC] World saved in " + lastSaveDurationMs + " ms");
+        }
+    }
+
+    /**
+     * Forget a save that never reported back so the next one can run. If
+     * saves keep failing while autosave is off, hand saving back to the
+     * server rather than not saving at all.
+     */
+    private void saveFailed() {
+        saveStartedAt = 0;
+        int failed = failedSaves.incrementAndGet();
+        EmbeddedMC.LOGGER.warn("Save of server {} did not complete ({} in a row)", instance.getName(), failed);
+        if (failed == MAX_FAILED_SAVES && EmbeddedMC.getInstance().getConfig().isManagedAutosave()) {
+            sendCommand("save-on");
+            addConsoleLine("[EmbeddedMC] Saves are not completing, turned the server's autosave back on");
+        }
+    }
+
+    /**
+     * Trigger a save-all unless one is already in progress. The duration is
+     * measured from the server's "Saved the game" output; a save still
+     * waiting for it after {@link #SAVE_TIMEOUT_MS} is given up on.
+     */
+    public boolean requestSave(String reason) {
+        if (!isRunning() || hibernated || backupRunning) {
+            return false;
+        }
+        long started = saveStartedAt;
+        if (started > 0) {
+            if (System.currentTimeMillis() - started < SAVE_TIMEOUT_MS) {
+                return false;
+            }
+            saveFailed();
+        }
+        EmbeddedMC.LOGGER.info("Saving server {} ({})", instance.getName(), reason);
+        saveStartedAt = System.currentTimeMillis();
+        sendCommand("save-all");
+        return true;
+    }
+
+    /**
+     * Get the world files ready for a backup: while it reads them no saves
+     * are triggered and the server isn't hibernated. An awake server is
+     * switched to save-off and flushed; a hibernated one was flushed before
+     * it was frozen and stays asleep. Returns false if the flush didn't
+     * complete. Call {@link #endBackup()} afterwards either way.
+     */
+    public boolean beginBackup(int timeoutSeconds) {
+        synchronized (this) {
+            backupRunning = true;
+            if (hibernated) {
+                return true;
+            }
+        }
+        suspendSavesForBackup();
+        return saveAndWait(timeoutSeconds);
+    }
+
+    public void endBackup() {
+        if (backupSavesOff) {
+            backupSavesOff = false;
+            sendCommand("save-on");
+        }
+        backupRunning = false;
+    }
+
+    private void suspendSavesForBackup() {
+        // With managed autosave the server already runs with save-off
+        if (!backupSavesOff && !EmbeddedMC.getInstance().getConfig().isManagedAutosave()) {
+            backupSavesOff = true;
+            sendCommand("save-off");
+        }
+    }
+
+    public boolean isBackupRunning() {
+        return backupRunning;
+    }
+
+    public long getMillisSinceLastSave() {
+        return System.currentTimeMillis() - lastSaveTime;
+    }
+
+    public long getLastSaveDurationMs() {
+        return lastSaveDurationMs;
+    }
+
+    public int getOnlinePlayers() {
+        return onlinePlayers.size();
+    }
+
+    /**
+     * Milliseconds since the last player left (or the server became ready),
+     * 0 while players are online.
+     */
+    public long getIdleMillis() {
+        if (!onlinePlayers.isEmpty()) {
+            return 0;
+        }
+        return System.currentTimeMillis() - lastActivity;
+    }
+
+    /**
+     * Freeze or unfreeze world ticking with /tick (Minecraft 1.20.3+), like
+     * singleplayer does while the pause menu is open.
+     */
+    public boolean setTickFrozen(boolean frozen) {
+        if (!isRunning() || tickFrozen == frozen) {
+            return false;
+        }
+        if (!supportsTickCommand()) {
+            return false;
+        }
+        sendCommand(frozen ? "tick freeze" : "tick unfreeze");
+        tickFrozen = frozen;
+        return true;
+    }
+
+    public boolean isTickFrozen() {
+        return tickFrozen;
+    }
+
+    private boolean supportsTickCommand() {
+        // /tick was added in 1.20.3
+        String[] parts = instance.getMcVersion().split("\\.");
+        try {
+            int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            int patch = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+            return Integer.parseInt(parts[0]) > 1 || minor > 20 || (minor == 20 && patch >= 3);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Run save-all flush and wait until the server reports the save as done.
+     */
+    public boolean saveAndWait(int timeoutSeconds) {
+        if (!isRunning()) {
+            return false;
+        }
+
+        CountDownLatch saved = new CountDownLatch(1);
+        Consumer<String> listener = line -> {
+            if (line.contains("Saved the game")) {
+                saved.countDown();
+            }
+        };
+        addConsoleListener(listener);
+        long started = System.currentTimeMillis();
+        boolean done = false;
+        try {
+            saveStartedAt = started;
+            sendCommand("save-all flush");
+            done = saved.await(timeoutSeconds, TimeUnit.SECONDS);
+            return done;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            removeConsoleListener(listener);
+            // Otherwise requestSave() would wait for this save forever
+            if (!done && saveStartedAt == started) {
+                saveFailed();
+            }
+        }
+    }
+
+    /**
+     * Flush the world to disk and freeze the process tree with SIGSTOP.
+     * Not supported on Windows.
+     */
+    public boolean hibernate() {
+        if (WINDOWS || hibernated || backupRunning || !isRunning()) {
+            return false;
+        }
+
+        EmbeddedMC.LOGGER.info("Hibernating idle server {}...", instance.getName());
+        if (!saveAndWait(30)) {
+            EmbeddedMC.LOGGER.warn("Save before hibernation of {} did not complete, staying awake", instance.getName());
+            return false;
+        }
+
+        synchronized (this) {
+            // A player may have joined or a backup started while we were saving
+            if (hibernated || backupRunning || !onlinePlayers.isEmpty() || !isRunning()) {
+                return false;
+            }
+            if (!signalProcessTree("STOP")) {
+                return false;
+            }
+            hibernated = true;
+            instance.setStatus(ServerInstance.ServerStatus.HIBERNATED);
+        }
+        EmbeddedMC.LOGGER.info("Server {} hibernated", instance.getName());
+        return true;
+    }
+
+    /**
+     * Thaw a hibernated server with SIGCONT. Returns immediately if the server is awake.
+     */
+    public synchronized boolean resume() {
+        if (!hibernated) {
+            return true;
+        }
+        if (!signalProcessTree("CONT")) {
+            return false;
+        }
+        hibernated = false;
+        lastActivity = System.currentTimeMillis();
+        if (instance.getStatus() == ServerInstance.ServerStatus.HIBERNATED) {
+            instance.setStatus(ServerInstance.ServerStatus.RUNNING);
+        }
+        if (backupRunning) {
+            // Woken while a backup reads the worlds of the frozen server
+            suspendSavesForBackup();
+        }
+        EmbeddedMC.LOGGER.info("Server {} resumed from hibernation", instance.getName());
+        return true;
+    }
+
+    public boolean isHibernated() {
+        return hibernated;
+    }
+
+    private boolean signalProcessTree(String signal) {
+        List<String> command = new ArrayList<>();
+        command.add("kill");
+        command.add("-" + signal);
+        command.add(String.valueOf(process.pid()));
+        process.descendants().forEach(child -> command.add(String.valueOf(child.pid())));
+
+        try {
+            Process kill = new ProcessBuilder(command).redirectErrorStream(true).start();
+            if (!kill.waitFor(5, TimeUnit.SECONDS) || kill.exitValue() != 0) {
+                EmbeddedMC.LOGGER.error("Failed to send SIG{} to server {}", signal, instance.getName());
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.error("Failed to send SIG{} to server {}", signal, instance.getName(), e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
     public boolean isRunning() {
-        return running && process != null && process.isAlive();
+        Process current = process;
+        return running && current != null && current.isAlive();
+    }
+
+    /**
+     * Running, or still spawning the process after start() returned.
+     */
+    public boolean isAlive() {
+        return launching || isRunning();
     }
 
     public boolean waitForReady(int timeoutSeconds) {
@@ -289,17 +697,4 @@ public class EmbeddedServer {
             return false;
         }
     }
-
-    /**
-     * Check if a port is already in use by trying to bind to it.
-     */
-    private boolean isPortInUse(int port) {
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            // Port is available, we could bind to it
-            return false;
-        } catch (IOException e) {
-            // Port is in use
-            return true;
-        }
-    }
 }
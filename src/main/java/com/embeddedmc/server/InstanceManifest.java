@@ -0,0 +1,104 @@
+package com.embeddedmc.server;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ServerInstance;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact index of all instances (instances/manifest.json), so startup needs
+ * one file read instead of parsing every instance.json. The full instance
+ * details are loaded afterwards in the background.
+ */
+public class InstanceManifest {
+    private static final String FILE_NAME = "manifest.json";
+    private static final Gson GSON = new Gson();
+
+    public record Entry(String id, String name, ServerType type, String mcVersion, int port, String path, long configModified) {
+        public static Entry of(ServerInstance instance) {
+            return new Entry(instance.getId(), instance.getName(), instance.getType(), instance.getMcVersion(),
+                    instance.getPort(), instance.getInstancePath().getFileName().toString(), InstanceManifest.configModified(instance.getInstancePath()));
+        }
+    }
+
+    /**
+     * Read the manifest, or null if it is missing, unreadable or has an
+     * invalid entry (hand-edited or truncated).
+     */
+    public static List<Entry> read(Path instancesPath) {
+        Path file = instancesPath.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            List<Entry> entries = GSON.fromJson(Files.readString(file), new TypeToken<List<Entry>>() {}.getType());
+            if (entries == null) {
+                return new ArrayList<>();
+            }
+            for (Entry entry : entries) {
+                if (!isValid(entry)) {
+                    EmbeddedMC.LOGGER.warn("Instance manifest has an invalid entry {}, rebuilding", entry);
+                    return null;
+                }
+            }
+            return entries;
+        } catch (IOException | JsonParseException e) {
+            EmbeddedMC.LOGGER.warn("Instance manifest is unreadable, rebuilding", e);
+            return null;
+        }
+    }
+
+    private static boolean isValid(Entry entry) {
+        if (entry == null || entry.id() == null || entry.name() == null || entry.type() == null
+                || entry.mcVersion() == null || entry.path() == null) {
+            return false;
+        }
+        // A single directory name inside instances/
+        try {
+            Path path = Path.of(entry.path());
+            return path.getNameCount() == 1 && !path.isAbsolute() && !entry.path().isBlank()
+                    && !entry.path().equals(".") && !entry.path().equals("..");
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Write the manifest for the given instances. Serialized, so concurrent
+     * creates, deletes and saves can't clobber each other's temp file, and the
+     * last writer's view of the instances ends up on disk.
+     */
+    public static synchronized void write(Path instancesPath, Collection<ServerInstance> instances) {
+        List<Entry> entries = new ArrayList<>();
+        for (ServerInstance instance : instances) {
+            entries.add(Entry.of(instance));
+        }
+
+        Path file = instancesPath.resolve(FILE_NAME);
+        Path temp = instancesPath.resolve(FILE_NAME + ".tmp");
+        try {
+            Files.writeString(temp, GSON.toJson(entries));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.error("Failed to write instance manifest", e);
+        }
+    }
+
+    public static long configModified(Path instancePath) {
+        try {
+            return Files.getLastModifiedTime(instancePath.resolve("instance.json")).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
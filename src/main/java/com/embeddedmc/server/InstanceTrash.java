@@ -0,0 +1,245 @@
+package com.embeddedmc.server;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ServerInstance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Deletes instances without blocking the caller: the instance directory is
+ * renamed into the trash directory (instant on the same drive), stays
+ * restorable for a short undo window and is then removed by low-priority
+ * background threads.
+ */
+public class InstanceTrash {
+    private static final long UNDO_WINDOW_SECONDS = 10;
+    private static final int PURGE_THREADS = 2;
+
+    private final Path trashPath;
+    // Own timer for the undo window, so purges don't queue behind ServerManager's housekeeping
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "EmbeddedMC-Trash");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ForkJoinPool purgePool = new ForkJoinPool(PURGE_THREADS, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("EmbeddedMC-Purge-" + thread.getPoolIndex());
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+    private final Map<String, Deletion> deletions = new ConcurrentHashMap<>();
+
+    public enum State {
+        MOVING, PENDING, PURGING
+    }
+
+    public static class Deletion {
+        private final ServerInstance instance;
+        private volatile Path trashDir;
+        private volatile State state = State.MOVING;
+        private volatile ScheduledFuture<?> purgeTask;
+        private final Runnable onPurged;
+        private final AtomicLong deletedFiles = new AtomicLong();
+        private volatile long totalFiles = -1;
+
+        private Deletion(ServerInstance instance, Runnable onPurged) {
+            this.instance = instance;
+            this.onPurged = onPurged;
+        }
+
+        public ServerInstance getInstance() {
+            return instance;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public boolean canUndo() {
+            return state == State.PENDING;
+        }
+
+        /**
+         * Purge progress in percent, -1 while the files are still being counted.
+         */
+        public int getPercent() {
+            long total = totalFiles;
+            if (total < 0) return -1;
+            if (total == 0) return 100;
+            return (int) (deletedFiles.get() * 100 / total);
+        }
+    }
+
+    public InstanceTrash(Path trashPath) {
+        this.trashPath = trashPath;
+    }
+
+    /**
+     * Move an instance into the trash. {@code beforeMove} runs first on a
+     * background thread (used to stop the server), {@code onPurged} once the
+     * files are gone for good.
+     */
+    public void delete(ServerInstance instance, Runnable beforeMove, Runnable onPurged) {
+        Deletion deletion = new Deletion(instance, onPurged);
+        deletions.put(instance.getId(), deletion);
+
+        CompletableFuture.runAsync(() -> {
+            beforeMove.run();
+
+            Path source = instance.getInstancePath();
+            Path target = trashPath.resolve(instance.getId() + "-" + System.currentTimeMillis());
+            try {
+                Files.createDirectories(trashPath);
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                deletion.trashDir = target;
+                deletion.purgeTask = scheduler.schedule(() -> startPurge(deletion), UNDO_WINDOW_SECONDS, TimeUnit.SECONDS);
+                deletion.state = State.PENDING;
+                EmbeddedMC.LOGGER.info("Moved instance {} to trash", instance.getId());
+            } catch (IOException e) {
+                // Different drive or locked files - delete in place, no undo
+                EmbeddedMC.LOGGER.warn("Could not move instance {} to trash, deleting in place", instance.getId(), e);
+                deletion.trashDir = source;
+                startPurge(deletion);
+            }
+        });
+    }
+
+    /**
+     * Move a trashed instance back if it is still within the undo window.
+     * Returns the restored instance, or null.
+     */
+    public ServerInstance restore(String id) {
+        Deletion deletion = deletions.get(id);
+        if (deletion == null) {
+            return null;
+        }
+
+        synchronized (deletion) {
+            if (deletion.state != State.PENDING || !deletion.purgeTask.cancel(false)) {
+                return null;
+            }
+            try {
+                Files.move(deletion.trashDir, deletion.instance.getInstancePath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.error("Failed to restore instance {}", id, e);
+                startPurge(deletion);
+                return null;
+            }
+            deletions.remove(id);
+        }
+        EmbeddedMC.LOGGER.info("Restored instance {} from trash", id);
+        return deletion.instance;
+    }
+
+    /**
+     * Move any directory into the trash and delete it in the background right away.
+     */
+    public void discard(Path dir) throws IOException {
+        Path target = trashPath.resolve(dir.getFileName() + "-" + System.currentTimeMillis());
+        Files.createDirectories(trashPath);
+        Files.move(dir, target, StandardCopyOption.ATOMIC_MOVE);
+        purgePool.execute(() -> deleteTree(target, null));
+    }
+
+    /**
+     * Whether an instance is in the trash or being purged.
+     */
+    public boolean contains(String id) {
+        return deletions.containsKey(id);
+    }
+
+    public Collection<Deletion> getDeletions() {
+        return new ArrayList<>(deletions.values());
+    }
+
+    /**
+     * Remove whatever is left in the trash from a previous session.
+     */
+    public void purgeLeftovers() {
+        if (!Files.isDirectory(trashPath)) {
+            return;
+        }
+        purgePool.execute(() -> {
+            try (Stream<Path> dirs = Files.list(trashPath)) {
+                dirs.forEach(dir -> deleteTree(dir, null));
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.error("Failed to clean up trash", e);
+            }
+        });
+    }
+
+    private void startPurge(Deletion deletion) {
+        synchronized (deletion) {
+            if (deletion.state == State.PURGING) {
+                return;
+            }
+            deletion.state = State.PURGING;
+        }
+        purgePool.execute(() -> {
+            deleteTree(deletion.trashDir, deletion);
+            deletions.remove(deletion.instance.getId(), deletion);
+            deletion.onPurged.run();
+            EmbeddedMC.LOGGER.info("Deleted instance: {}", deletion.instance.getId());
+        });
+    }
+
+    /**
+     * Delete a directory tree: files in parallel on the purge pool, then the
+     * directories deepest first.
+     */
+    private void deleteTree(Path root, Deletion progress) {
+        List<Path> files = new ArrayList<>();
+        List<Path> dirs = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.forEach(path -> (Files.isDirectory(path) ? dirs : files).add(path));
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.error("Failed to list {}", root, e);
+            return;
+        }
+
+        if (progress != null) {
+            progress.totalFiles = files.size();
+        }
+
+        // Runs on the purge pool, so the parallel stream uses its low-priority workers
+        files.parallelStream().forEach(file -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.error("Failed to delete: {}", file, e);
+            }
+            if (progress != null) {
+                progress.deletedFiles.incrementAndGet();
+            }
+        });
+
+        dirs.sort(Comparator.reverseOrder());
+        for (Path dir : dirs) {
+            try {
+                Files.deleteIfExists(dir);
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.error("Failed to delete: {}", dir, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.embeddedmc.server;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ServerInstance;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hands out server ports from a pool starting at the configured default port.
+ * A port counts as free only if no other instance has it reserved and it can
+ * actually be bound on the loopback interface. The probe socket is held open
+ * until right before the server process is spawned, so nothing else in this
+ * client can grab the port between the check and the server's own bind.
+ */
+public class PortAllocator {
+    private static final int POOL_SIZE = 1000;
+
+    // Live view of all instances; their configured ports count as taken
+    private final Collection<ServerInstance> instances;
+    // Ports of running/starting servers, port -> instance id (guarded by this)
+    private final Map<Integer, String> leased = new HashMap<>();
+
+    public PortAllocator(Collection<ServerInstance> instances) {
+        this.instances = instances;
+    }
+
+    /**
+     * Pick a port for a new instance that no other instance uses and that is
+     * currently free on this machine. Returns -1 if the pool is exhausted.
+     */
+    public synchronized int findFreePort(String instanceId) {
+        ServerSocket socket = bindFromPool(EmbeddedMC.getInstance().getConfig().getDefaultPort(), reservedPorts(instanceId));
+        if (socket == null) {
+            return -1;
+        }
+        int port = socket.getLocalPort();
+        closeQuietly(socket);
+        return port;
+    }
+
+    /**
+     * Reserve the instance's port for a server start. If the port is taken by
+     * another server or another program, the instance is moved to a free port
+     * from the pool and saved. Returns null if no port is available.
+     */
+    public synchronized Lease acquire(ServerInstance instance) {
+        int port = instance.getPort();
+        String owner = leased.get(port);
+        if (owner == null || owner.equals(instance.getId())) {
+            ServerSocket socket = tryBind(port);
+            if (socket != null) {
+                return lease(instance, port, socket);
+            }
+        }
+
+        ServerSocket socket = bindFromPool(port, reservedPorts(instance.getId()));
+        if (socket == null) {
+            EmbeddedMC.LOGGER.error("No free port available for server {}", instance.getName());
+            return null;
+        }
+        int newPort = socket.getLocalPort();
+
+        EmbeddedMC.LOGGER.warn("Port {} is already in use, moving server {} to port {}", port, instance.getName(), newPort);
+        instance.setPort(newPort);
+        try {
+            instance.save();
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.error("Failed to save new port for instance {}", instance.getId(), e);
+        }
+        return lease(instance, newPort, socket);
+    }
+
+    private Lease lease(ServerInstance instance, int port, ServerSocket socket) {
+        leased.put(port, instance.getId());
+        return new Lease(port, instance.getId(), socket);
+    }
+
+    private synchronized void release(Lease lease) {
+        leased.remove(lease.port, lease.instanceId);
+    }
+
+    /**
+     * Ports that are leased or configured for any other instance.
+     */
+    private Set<Integer> reservedPorts(String instanceId) {
+        Set<Integer> reserved = new HashSet<>(leased.keySet());
+        for (ServerInstance instance : instances) {
+            if (!instance.getId().equals(instanceId)) {
+                reserved.add(instance.getPort());
+            }
+        }
+        return reserved;
+    }
+
+    private ServerSocket bindFromPool(int preferred, Set<Integer> reserved) {
+        int base = EmbeddedMC.getInstance().getConfig().getDefaultPort();
+        int start = preferred >= base && preferred < base + POOL_SIZE ? preferred : base;
+
+        // Walk the pool once, wrapping around to the base port
+        for (int i = 0; i < POOL_SIZE; i++) {
+            int port = base + (start - base + i) % POOL_SIZE;
+            if (port > 65535 || reserved.contains(port)) {
+                continue;
+            }
+            ServerSocket socket = tryBind(port);
+            if (socket != null) {
+                return socket;
+            }
+        }
+        return null;
+    }
+
+    private static ServerSocket tryBind(int port) {
+        ServerSocket socket = null;
+        try {
+            socket = new ServerSocket();
+            // Keep the JDK default: SO_REUSEADDR on Linux/macOS never allows binding next to a
+            // listening socket, only over TIME_WAIT connections, so a server restarted right
+            // after a stop keeps its port. Windows leaves it off (it would allow port stealing there).
+            socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            return socket;
+        } catch (IOException e) {
+            if (socket != null) {
+                closeQuietly(socket);
+            }
+            return null;
+        }
+    }
+
+    private static void closeQuietly(ServerSocket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * A reserved port. The probe socket is released with {@link #releaseSocket()}
+     * right before the server binds; the reservation itself lasts until {@link #close()}.
+     */
+    public class Lease implements AutoCloseable {
+        private final int port;
+        private final String instanceId;
+        private ServerSocket socket;
+
+        private Lease(int port, String instanceId, ServerSocket socket) {
+            this.port = port;
+            this.instanceId = instanceId;
+            this.socket = socket;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public synchronized void releaseSocket() {
+            if (socket != null) {
+                closeQuietly(socket);
+                socket = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            releaseSocket();
+            release(this);
+        }
+    }
+}
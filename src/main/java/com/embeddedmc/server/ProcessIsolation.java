@@ -0,0 +1,217 @@
+package com.embeddedmc.server;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ModConfig;
+import com.embeddedmc.config.ServerInstance;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies CPU and I/O scheduling policies to server processes on Linux so
+ * that an embedded server can't starve the client's render thread.
+ * The launch command is prefixed with the standard util-linux tools, which
+ * exec into the JVM - the process (and every thread it spawns) inherits the
+ * affinity mask, nice and ionice levels, and the PID stays the same.
+ */
+public class ProcessIsolation {
+    private static final boolean LINUX = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux");
+
+    // Whether systemd-run --user works here, probed on first use
+    private static Boolean userScopeAvailable;
+
+    /**
+     * Wrap the given server command with the scheduling policy for this instance.
+     * Returns the command unchanged on other platforms or when isolation is disabled.
+     */
+    public static List<String> wrapCommand(ServerInstance instance, List<String> command) {
+        ModConfig config = EmbeddedMC.getInstance().getConfig();
+        if (!LINUX || !config.isProcessIsolation()) {
+            return command;
+        }
+
+        List<String> wrapped = new ArrayList<>();
+
+        // cgroup v2 quota via a transient systemd scope (optional)
+        int cpuQuota = config.getCgroupCpuQuotaPercent();
+        int memoryLimit = config.getCgroupMemoryLimitMB();
+        if ((cpuQuota > 0 || memoryLimit > 0) && isCgroupV2() && isUserScopeAvailable()) {
+            wrapped.add("systemd-run");
+            wrapped.add("--user");
+            wrapped.add("--scope");
+            wrapped.add("--quiet");
+            wrapped.add("--unit=embeddedmc-" + instance.getId() + "-" + System.currentTimeMillis());
+            if (cpuQuota > 0) {
+                wrapped.add("-p");
+                wrapped.add("CPUQuota=" + cpuQuota + "%");
+            }
+            if (memoryLimit > 0) {
+                wrapped.add("-p");
+                wrapped.add("MemoryMax=" + memoryLimit + "M");
+            }
+        } else if (cpuQuota > 0 || memoryLimit > 0) {
+            EmbeddedMC.LOGGER.warn("cgroup v2 quota requested but systemd-run --user or cgroup v2 is not available, skipping");
+        }
+
+        // CPU affinity
+        String cpuList = resolveCpuList(instance, config);
+        if (cpuList != null && findExecutable("taskset") != null) {
+            wrapped.add("taskset");
+            wrapped.add("-c");
+            wrapped.add(cpuList);
+        }
+
+        // CPU priority
+        int nice = instance.getNiceLevel() != null ? instance.getNiceLevel() : config.getServerNiceLevel();
+        if (nice != 0 && findExecutable("nice") != null) {
+            wrapped.add("nice");
+            wrapped.add("-n");
+            wrapped.add(String.valueOf(nice));
+        }
+
+        // I/O priority (best-effort class, 0 = highest, 7 = lowest)
+        int ioPriority = config.getServerIoPriority();
+        if (ioPriority >= 0 && findExecutable("ionice") != null) {
+            wrapped.add("ionice");
+            wrapped.add("-c");
+            wrapped.add("2");
+            wrapped.add("-n");
+            wrapped.add(String.valueOf(Math.min(ioPriority, 7)));
+        }
+
+        if (wrapped.isEmpty()) {
+            return command;
+        }
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    /**
+     * Resolve the CPU list (taskset -c format) for an instance. An explicit
+     * per-instance list wins; otherwise the first reserved cores of the ones
+     * this process may use are kept free for the client and the server gets
+     * the rest.
+     */
+    static String resolveCpuList(ServerInstance instance, ModConfig config) {
+        String explicit = instance.getCpuAffinity();
+        if (explicit != null && !explicit.isBlank()) {
+            return explicit.trim();
+        }
+
+        List<Integer> cpus = allowedCpus();
+        int reserved = Math.min(config.getReservedClientCores(), cpus.size() - 1);
+        if (reserved <= 0) {
+            return null;
+        }
+        return formatCpuList(cpus.subList(reserved, cpus.size()));
+    }
+
+    /**
+     * CPU ids this process may run on. Inside a cpuset (containers, isolated
+     * or offline cores) they don't have to be 0..n-1.
+     */
+    private static List<Integer> allowedCpus() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("Cpus_allowed_list:")) {
+                    return parseCpuList(line.substring(line.indexOf(':') + 1).trim());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            EmbeddedMC.LOGGER.debug("Could not read allowed CPUs", e);
+        }
+        List<Integer> cpus = new ArrayList<>();
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+            cpus.add(i);
+        }
+        return cpus;
+    }
+
+    /**
+     * "0-3,8,10-11" to the sorted list of ids.
+     */
+    static List<Integer> parseCpuList(String list) {
+        TreeSet<Integer> cpus = new TreeSet<>();
+        for (String part : list.split(",")) {
+            int dash = part.indexOf('-');
+            int from = Integer.parseInt(part.substring(0, dash < 0 ? part.length() : dash).trim());
+            int to = dash < 0 ? from : Integer.parseInt(part.substring(dash + 1).trim());
+            for (int cpu = from; cpu <= to; cpu++) {
+                cpus.add(cpu);
+            }
+        }
+        return new ArrayList<>(cpus);
+    }
+
+    static String formatCpuList(List<Integer> cpus) {
+        StringBuilder list = new StringBuilder();
+        int i = 0;
+        while (i < cpus.size()) {
+            int from = cpus.get(i);
+            int to = from;
+            while (i + 1 < cpus.size() && cpus.get(i + 1) == to + 1) {
+                to = cpus.get(++i);
+            }
+            if (!list.isEmpty()) {
+                list.append(',');
+            }
+            list.append(from == to ? String.valueOf(from) : from + "-" + to);
+            i++;
+        }
+        return list.toString();
+    }
+
+    /**
+     * systemd-run --user needs a user session bus, which isn't there under
+     * plain su, in some containers or over SSH without lingering. A failing
+     * wrapper would keep the server from starting, so it is tried once.
+     */
+    private static synchronized boolean isUserScopeAvailable() {
+        if (userScopeAvailable == null) {
+            userScopeAvailable = false;
+            if (findExecutable("systemd-run") != null) {
+                try {
+                    Process probe = new ProcessBuilder("systemd-run", "--user", "--scope", "--quiet", "true")
+                            .redirectErrorStream(true)
+                            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                            .start();
+                    if (probe.waitFor(5, TimeUnit.SECONDS)) {
+                        userScopeAvailable = probe.exitValue() == 0;
+                    } else {
+                        probe.destroyForcibly();
+                    }
+                } catch (IOException e) {
+                    EmbeddedMC.LOGGER.debug("systemd-run probe failed", e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        return userScopeAvailable;
+    }
+
+    private static boolean isCgroupV2() {
+        return Files.exists(Path.of("/sys/fs/cgroup/cgroup.controllers"));
+    }
+
+    private static Path findExecutable(String name) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return null;
+        }
+        for (String dir : path.split(File.pathSeparator)) {
+            Path candidate = Path.of(dir, name);
+            if (Files.isExecutable(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
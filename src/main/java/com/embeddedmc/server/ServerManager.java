@@ -1,25 +1,77 @@
 package com.embeddedmc.server;
 
 import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ModConfig;
 import com.embeddedmc.config.ServerInstance;
+import com.embeddedmc.download.BuildUpdater;
+import com.embeddedmc.download.JarStore;
+import com.embeddedmc.world.WorldBackup;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class ServerManager {
     private final Path instancesPath;
-    private final Map<String, ServerInstance> instances = new HashMap<>();
-    private final Map<String, EmbeddedServer> runningServers = new HashMap<>();
+    // Accessed from the render thread, download/start workers, output monitors and the shutdown hook.
+    // Reads are lock-free; start/stop/delete of one instance is serialized through its lifecycle lock.
+    private final Map<String, ServerInstance> instances = new ConcurrentHashMap<>();
+    private final Map<String, EmbeddedServer> runningServers = new ConcurrentHashMap<>();
+    private final Map<String, Object> lifecycleLocks = new ConcurrentHashMap<>();
+    private final PortAllocator portAllocator = new PortAllocator(instances.values());
+    private final InstanceTrash trash;
+
+    // Background housekeeping (hibernation checks, autosave safety timer)
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "EmbeddedMC-Scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // World backups run one at a time on a low-priority thread
+    private final ExecutorService backupExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "EmbeddedMC-Backup");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Long> lastBackups = new ConcurrentHashMap<>();
+    // Instances with offline world maintenance in progress; they can't be started
+    private final Set<String> offlineTasks = ConcurrentHashMap.newKeySet();
+    private volatile long lastUpdateCheck;
 
     public ServerManager(Path instancesPath) {
         this.instancesPath = instancesPath;
+        this.trash = new InstanceTrash(instancesPath.resolveSibling("trash"));
+    }
+
+    /**
+     * Load the instances and start the background housekeeping. Called once
+     * after construction.
+     */
+    public void start() {
         loadInstances();
+        trash.purgeLeftovers();
+        scheduler.scheduleWithFixedDelay(this::checkHibernation, 10, 10, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::checkAutosave, 10, 10, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::checkBackups, 1, 1, TimeUnit.MINUTES);
+        scheduler.scheduleWithFixedDelay(this::collectJarGarbage, 5, 6 * 60, TimeUnit.MINUTES);
+        scheduler.scheduleWithFixedDelay(this::checkForUpdates, 2, 1, TimeUnit.MINUTES);
     }
 
     private void loadInstances() {
@@ -32,12 +84,36 @@ public class ServerManager {
             return;
         }
 
+        List<InstanceManifest.Entry> manifest = InstanceManifest.read(instancesPath);
+        if (manifest == null) {
+            // No manifest yet - scan the directories once and write it
+            scanInstanceDirectories();
+            saveManifest();
+            return;
+        }
+
+        // Fast path: one read, full details follow in the background
+        for (InstanceManifest.Entry entry : manifest) {
+            ServerInstance instance = ServerInstance.stub(instancesPath.resolve(entry.path()), entry.id(), entry.name(),
+                    entry.type(), entry.mcVersion(), entry.port());
+            instances.put(instance.getId(), instance);
+        }
+        EmbeddedMC.LOGGER.info("Loaded {} instances from manifest", instances.size());
+        CompletableFuture.runAsync(() -> revalidateManifest(manifest));
+    }
+
+    private void scanInstanceDirectories() {
+        Set<Path> known = new HashSet<>();
+        for (ServerInstance instance : instances.values()) {
+            known.add(instance.getInstancePath());
+        }
+
         try (Stream<Path> dirs = Files.list(instancesPath)) {
-            dirs.filter(Files::isDirectory).forEach(dir -> {
+            dirs.filter(Files::isDirectory).filter(dir -> !known.contains(dir)).parallel().forEach(dir -> {
                 try {
                     ServerInstance instance = ServerInstance.load(dir);
                     if (instance != null) {
-                        instances.put(instance.getId(), instance);
+                        instances.putIfAbsent(instance.getId(), instance);
                         EmbeddedMC.LOGGER.info("Loaded instance: {} ({})", instance.getName(), instance.getId());
                     }
                 } catch (IOException e) {
@@ -49,19 +125,49 @@ public class ServerManager {
         }
     }
 
+    /**
+     * Load full instance details in parallel and rewrite the manifest if it
+     * no longer matches the directories (instances added, removed or edited).
+     */
+    private void revalidateManifest(List<InstanceManifest.Entry> manifest) {
+        // Drop stubs whose directory is gone
+        instances.values().removeIf(instance -> !instance.isDetailsLoaded()
+                && !Files.exists(instance.getInstancePath().resolve("instance.json")));
+
+        instances.values().parallelStream().forEach(this::ensureLoaded);
+
+        // Pick up instances that were copied in by hand
+        scanInstanceDirectories();
+
+        List<InstanceManifest.Entry> current = new ArrayList<>();
+        for (ServerInstance instance : instances.values()) {
+            current.add(InstanceManifest.Entry.of(instance));
+        }
+        if (current.size() != manifest.size() || !manifest.containsAll(current)) {
+            EmbeddedMC.LOGGER.info("Instance manifest is stale, rebuilding");
+            saveManifest();
+        }
+    }
+
+    private void saveManifest() {
+        InstanceManifest.write(instancesPath, instances.values());
+    }
+
     public ServerInstance createInstance(String name, ServerType type, String mcVersion) {
         ServerInstance instance = new ServerInstance();
         instance.setName(name);
         instance.setType(type);
         instance.setMcVersion(mcVersion);
         instance.setRamMB(EmbeddedMC.getInstance().getConfig().getDefaultRamMB());
-        instance.setPort(findAvailablePort());
+        int port = portAllocator.findFreePort(instance.getId());
+        instance.setPort(port > 0 ? port : EmbeddedMC.getInstance().getConfig().getDefaultPort());
         instance.setInstancePath(instancesPath.resolve(instance.getId()));
 
         try {
             instance.ensureDirectories();
             instance.save();
             instances.put(instance.getId(), instance);
+            saveManifest();
             EmbeddedMC.LOGGER.info("Created instance: {} ({})", name, instance.getId());
         } catch (IOException e) {
             EmbeddedMC.LOGGER.error("Failed to create instance", e);
@@ -71,37 +177,369 @@ public class ServerManager {
         return instance;
     }
 
+    /**
+     * Remove an instance. Returns immediately - the server is stopped and the
+     * files are moved to the trash in the background, where they can still be
+     * restored with {@link #undoDelete(String)} for a few seconds.
+     */
     public void deleteInstance(String id) {
-        ServerInstance instance = instances.remove(id);
-        if (instance != null) {
-            // Stop if running
-            stopServer(id);
+        ServerInstance instance;
+        synchronized (lifecycleLock(id)) {
+            instance = instances.remove(id);
+            if (instance == null) {
+                return;
+            }
+            saveManifest();
+        }
+        // Once the files are purged the id can't come back through undo
+        trash.delete(instance, () -> stopServer(id), () -> lifecycleLocks.remove(id));
+    }
+
+    /**
+     * Restore a deleted instance that is still inside the undo window.
+     */
+    public boolean undoDelete(String id) {
+        synchronized (lifecycleLock(id)) {
+            ServerInstance instance = trash.restore(id);
+            if (instance == null) {
+                return false;
+            }
+            instances.put(id, instance);
+            saveManifest();
+            return true;
+        }
+    }
+
+    public Collection<InstanceTrash.Deletion> getPendingDeletions() {
+        return trash.getDeletions();
+    }
 
-            // Delete files
+    /**
+     * Run {@code task} under the instance's lifecycle lock, but only while
+     * the instance is still registered and not in the trash, so background
+     * work can't write the files of a deleted instance back to disk.
+     *
+     * @return false if the instance is gone and the task was skipped
+     */
+    public boolean whileRegistered(String id, InstanceTask task) throws IOException {
+        // Checked before taking the lock too, so a purged id gets no new lock
+        if (!instances.containsKey(id)) {
+            return false;
+        }
+        synchronized (lifecycleLock(id)) {
+            if (!instances.containsKey(id) || trash.contains(id)) {
+                return false;
+            }
+            task.run();
+            return true;
+        }
+    }
+
+    @FunctionalInterface
+    public interface InstanceTask {
+        void run() throws IOException;
+    }
+
+    private Object lifecycleLock(String id) {
+        return lifecycleLocks.computeIfAbsent(id, key -> new Object());
+    }
+
+    /**
+     * Create a copy of an instance under a new id. Uses reflinks where the
+     * filesystem supports them, so even large instances clone in seconds.
+     */
+    public CompletableFuture<ServerInstance> cloneInstance(String id, String newName) {
+        ServerInstance source = getInstance(id);
+        if (source == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            // Make the world on disk consistent before copying it
+            EmbeddedServer server = runningServers.get(id);
+            if (server != null && server.isRunning()) {
+                server.saveAndWait(30);
+            }
+
+            String newId = new ServerInstance().getId();
+            Path target = instancesPath.resolve(newId);
             try {
-                deleteDirectory(instance.getInstancePath());
-                EmbeddedMC.LOGGER.info("Deleted instance: {}", id);
+                long start = System.currentTimeMillis();
+                TreeCopier.Mode mode = TreeCopier.copyTree(source.getInstancePath(), target, true);
+
+                ServerInstance clone = ServerInstance.load(target);
+                clone.setId(newId);
+                clone.setName(newName);
+                int port = portAllocator.findFreePort(newId);
+                clone.setPort(port > 0 ? port : source.getPort());
+                clone.save();
+
+                instances.put(newId, clone);
+                saveManifest();
+                EmbeddedMC.LOGGER.info("Cloned instance {} to {} ({}, {} ms)", id, newId, mode, System.currentTimeMillis() - start);
+                return clone;
             } catch (IOException e) {
-                EmbeddedMC.LOGGER.error("Failed to delete instance files", e);
+                EmbeddedMC.LOGGER.error("Failed to clone instance {}", id, e);
+                return null;
             }
+        });
+    }
+
+    /**
+     * Remember the current worlds as the state "Reset World" returns to.
+     */
+    public CompletableFuture<Boolean> savePristineWorld(String id) {
+        ServerInstance instance = getInstance(id);
+        if (instance == null) {
+            return CompletableFuture.completedFuture(false);
         }
+
+        return CompletableFuture.supplyAsync(() -> {
+            EmbeddedServer server = runningServers.get(id);
+            if (server != null && server.isRunning()) {
+                server.saveAndWait(30);
+            }
+
+            Path pristine = instance.getPristineDir();
+            try {
+                if (Files.exists(pristine)) {
+                    trash.discard(pristine);
+                }
+                Files.createDirectories(pristine);
+                for (Path world : instance.getWorldDirs()) {
+                    // Both sides get modified later, so never share inodes here
+                    TreeCopier.copyTree(world, pristine.resolve(world.getFileName().toString()), false);
+                    Files.deleteIfExists(pristine.resolve(world.getFileName().toString()).resolve("session.lock"));
+                }
+                EmbeddedMC.LOGGER.info("Saved pristine world for instance {}", id);
+                return true;
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.error("Failed to save pristine world for instance {}", id, e);
+                return false;
+            }
+        });
     }
 
-    private void deleteDirectory(Path path) throws IOException {
-        if (Files.exists(path)) {
-            try (Stream<Path> walk = Files.walk(path)) {
-                walk.sorted((a, b) -> b.compareTo(a))
-                    .forEach(p -> {
-                        try {
-                            Files.delete(p);
-                        } catch (IOException e) {
-                            EmbeddedMC.LOGGER.error("Failed to delete: {}", p, e);
+    /**
+     * Stop the server and roll the worlds back to the pristine snapshot, or
+     * delete them so a fresh world is generated if there is no snapshot.
+     */
+    public CompletableFuture<Boolean> resetWorld(String id) {
+        ServerInstance instance = getInstance(id);
+        if (instance == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (lifecycleLock(id)) {
+                stopServer(id);
+
+                try {
+                    for (Path world : instance.getWorldDirs()) {
+                        trash.discard(world);
+                    }
+
+                    Path pristine = instance.getPristineDir();
+                    if (Files.isDirectory(pristine)) {
+                        try (Stream<Path> worlds = Files.list(pristine)) {
+                            for (Path world : (Iterable<Path>) worlds::iterator) {
+                                TreeCopier.copyTree(world, instance.getInstancePath().resolve(world.getFileName().toString()), false);
+                            }
                         }
-                    });
+                    }
+                    EmbeddedMC.LOGGER.info("Reset world of instance {}", id);
+                    return true;
+                } catch (IOException e) {
+                    EmbeddedMC.LOGGER.error("Failed to reset world of instance {}", id, e);
+                    return false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Take an incremental snapshot of the instance's worlds. A running server
+     * is flushed with save-all flush and kept from writing (save-off) while
+     * the region files are read; the backup is skipped if that save doesn't
+     * complete. A hibernated server was flushed before it was frozen and is
+     * left asleep. Completes with null on failure.
+     */
+    public CompletableFuture<WorldBackup.Result> backupWorld(String id) {
+        ServerInstance instance = getInstance(id);
+        if (instance == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            EmbeddedServer server = runningServers.get(id);
+            boolean live = server != null && server.isRunning();
+
+            try {
+                if (live && !server.beginBackup(60)) {
+                    EmbeddedMC.LOGGER.warn("Save before backup of instance {} did not complete, skipping the backup", id);
+                    return null;
+                }
+
+                long bytesPerSecond = EmbeddedMC.getInstance().getConfig().getBackupMaxMBps() * 1024L * 1024L;
+                WorldBackup backup = new WorldBackup(instance.getBackupDir(), bytesPerSecond);
+                WorldBackup.Result result = backup.createSnapshot(instance.getWorldDirs(), instance.getInstancePath());
+                lastBackups.put(id, System.currentTimeMillis());
+                EmbeddedMC.LOGGER.info("Backed up instance {} as {}: {} files, {} KB read, {} KB stored in {} ms",
+                        id, result.name(), result.files(), result.bytesRead() / 1024, result.bytesStored() / 1024, result.millis());
+
+                int pruned = backup.prune(EmbeddedMC.getInstance().getConfig().getBackupRetention());
+                if (pruned > 0) {
+                    EmbeddedMC.LOGGER.info("Pruned {} old backup(s) of instance {}", pruned, id);
+                }
+                return result;
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.error("Failed to back up instance {}", id, e);
+                return null;
+            } finally {
+                if (live) {
+                    server.endBackup();
+                }
+            }
+        }, backupExecutor);
+    }
+
+    /**
+     * Backup snapshot names of an instance, newest first.
+     */
+    public List<String> listBackups(String id) throws IOException {
+        ServerInstance instance = getInstance(id);
+        if (instance == null) {
+            return List.of();
+        }
+        return new WorldBackup(instance.getBackupDir(), 0).listSnapshots().reversed();
+    }
+
+    /**
+     * Restore a backup snapshot. The server is stopped first. The snapshot is
+     * restored into a staging directory and only swapped in once every file
+     * is back, so a failed restore leaves the current worlds as they were.
+     */
+    public CompletableFuture<Boolean> restoreBackup(String id, String snapshot) {
+        ServerInstance instance = getInstance(id);
+        if (instance == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (lifecycleLock(id)) {
+                stopServer(id);
+
+                // Inside the instance, so the swap is a rename on the same drive
+                Path staging = instance.getInstancePath().resolve(".restore");
+                try {
+                    if (Files.exists(staging)) {
+                        trash.discard(staging);
+                    }
+                    Files.createDirectories(staging);
+                    new WorldBackup(instance.getBackupDir(), 0).restore(snapshot, staging);
+                    swapInWorlds(instance, staging);
+                    EmbeddedMC.LOGGER.info("Restored backup {} of instance {}", snapshot, id);
+                    return true;
+                } catch (IOException e) {
+                    EmbeddedMC.LOGGER.error("Failed to restore backup {} of instance {}", snapshot, id, e);
+                    return false;
+                } finally {
+                    discardQuietly(staging);
+                }
+            }
+        }, backupExecutor);
+    }
+
+    /**
+     * Replace the instance's worlds with the ones restored into {@code staging}.
+     * The current worlds are moved aside first and moved back if any rename fails.
+     */
+    private void swapInWorlds(ServerInstance instance, Path staging) throws IOException {
+        Path previous = instance.getInstancePath().resolve(".restore-previous");
+        if (Files.exists(previous)) {
+            // Left by a restore that couldn't roll back; it may hold the only copy of a world
+            throw new IOException(previous + " still holds worlds from an earlier restore, move them back first");
+        }
+        Files.createDirectories(previous);
+
+        List<Path> movedAside = new ArrayList<>();
+        List<Path> movedIn = new ArrayList<>();
+        try {
+            for (Path world : instance.getWorldDirs()) {
+                Files.move(world, previous.resolve(world.getFileName().toString()), StandardCopyOption.ATOMIC_MOVE);
+                movedAside.add(world);
+            }
+            try (Stream<Path> restored = Files.list(staging)) {
+                for (Path world : (Iterable<Path>) restored::iterator) {
+                    Path target = instance.getInstancePath().resolve(world.getFileName().toString());
+                    Files.move(world, target, StandardCopyOption.ATOMIC_MOVE);
+                    movedIn.add(target);
+                }
             }
+        } catch (IOException e) {
+            for (Path world : movedIn) {
+                moveBack(world, staging.resolve(world.getFileName().toString()), e);
+            }
+            for (Path world : movedAside) {
+                moveBack(previous.resolve(world.getFileName().toString()), world, e);
+            }
+            try {
+                Files.deleteIfExists(previous);
+            } catch (IOException notEmpty) {
+                e.addSuppressed(notEmpty);
+            }
+            throw e;
+        }
+        discardQuietly(previous);
+    }
+
+    private static void moveBack(Path source, Path target, IOException failure) {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private void discardQuietly(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try {
+            trash.discard(dir);
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to clean up {}", dir, e);
         }
     }
 
+    /**
+     * Run a task that needs the world files to itself (e.g. region
+     * optimization). Fails if the server is running; while the task runs the
+     * server can't be started.
+     */
+    public <T> CompletableFuture<T> runOffline(String id, Supplier<CompletableFuture<T>> task) {
+        synchronized (lifecycleLock(id)) {
+            EmbeddedServer server = runningServers.get(id);
+            if (server != null && server.isAlive()) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Server " + id + " is running"));
+            }
+            if (!offlineTasks.add(id)) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Server " + id + " is busy"));
+            }
+        }
+
+        try {
+            return task.get().whenComplete((result, error) -> offlineTasks.remove(id));
+        } catch (RuntimeException e) {
+            offlineTasks.remove(id);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public boolean isOfflineTaskRunning(String id) {
+        return offlineTasks.contains(id);
+    }
+
     public void startServer(String id, Runnable onReady) {
         ServerInstance instance = instances.get(id);
         if (instance == null) {
@@ -109,52 +547,197 @@ public class ServerManager {
             return;
         }
 
-        if (runningServers.containsKey(id)) {
-            EmbeddedMC.LOGGER.warn("Server already running: {}", id);
-            return;
-        }
+        ensureLoaded(instance);
+
+        // Check-and-start under the instance lock so two quick clicks can't spawn two JVMs
+        synchronized (lifecycleLock(id)) {
+            EmbeddedServer existing = runningServers.get(id);
+            if (existing != null && existing.isAlive()) {
+                EmbeddedMC.LOGGER.warn("Server already running: {}", id);
+                return;
+            }
+            if (offlineTasks.contains(id)) {
+                EmbeddedMC.LOGGER.warn("Server {} can't start while its world is being optimized", id);
+                return;
+            }
 
-        EmbeddedServer server = new EmbeddedServer(instance);
-        boolean started = server.start(onReady);
+            // Swap in a build the updater downloaded while the server was running
+            BuildUpdater.applyStagedUpdate(instance);
 
-        if (started) {
-            runningServers.put(id, server);
+            EmbeddedServer server = new EmbeddedServer(instance, portAllocator);
+            boolean started = server.start(onReady);
+
+            if (started) {
+                runningServers.put(id, server);
+            } else if (existing != null) {
+                // Drop the entry of a server that exited on its own
+                runningServers.remove(id, existing);
+            }
         }
     }
 
     public void stopAllServers() {
         EmbeddedMC.LOGGER.info("Stopping all running servers...");
-        for (String id : new ArrayList<>(runningServers.keySet())) {
+        for (String id : runningServers.keySet()) {
             stopServer(id);
         }
         EmbeddedMC.LOGGER.info("All servers stopped.");
     }
 
     public void stopServer(String id) {
-        EmbeddedServer server = runningServers.remove(id);
-        if (server != null) {
-            server.stop();
+        synchronized (lifecycleLock(id)) {
+            EmbeddedServer server = runningServers.remove(id);
+            if (server != null) {
+                server.stop();
+                BuildUpdater.applyStagedUpdate(server.getInstance());
+            }
         }
     }
 
+    /**
+     * Freeze servers that have had no players for the configured time.
+     */
+    private void checkHibernation() {
+        int timeoutSeconds = EmbeddedMC.getInstance().getConfig().getHibernateAfterSeconds();
+        if (timeoutSeconds <= 0) {
+            return;
+        }
+
+        for (EmbeddedServer server : runningServers.values()) {
+            try {
+                if (server.isRunning() && !server.isHibernated() && !server.isBackupRunning()
+                        && server.getInstance().getStatus() == ServerInstance.ServerStatus.RUNNING
+                        && server.getIdleMillis() >= timeoutSeconds * 1000L) {
+                    server.hibernate();
+                }
+            } catch (Exception e) {
+                EmbeddedMC.LOGGER.error("Hibernation check failed", e);
+            }
+        }
+    }
+
+    /**
+     * Safety net for managed autosave: save servers that haven't been saved
+     * for the maximum interval, no matter what the player is doing.
+     */
+    private void checkAutosave() {
+        ModConfig config = EmbeddedMC.getInstance().getConfig();
+        if (!config.isManagedAutosave()) {
+            return;
+        }
+
+        long maxInterval = config.getAutosaveMaxIntervalSeconds() * 1000L;
+        for (EmbeddedServer server : runningServers.values()) {
+            if (server.isRunning() && !server.isHibernated()
+                    && server.getInstance().getStatus() == ServerInstance.ServerStatus.RUNNING
+                    && server.getMillisSinceLastSave() >= maxInterval) {
+                server.requestSave("interval");
+            }
+        }
+    }
+
+    /**
+     * Back up running servers every backupIntervalMinutes. Hibernated servers
+     * haven't changed since they were frozen, so they are skipped.
+     */
+    private void checkBackups() {
+        int intervalMinutes = EmbeddedMC.getInstance().getConfig().getBackupIntervalMinutes();
+        if (intervalMinutes <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, EmbeddedServer> entry : runningServers.entrySet()) {
+            EmbeddedServer server = entry.getValue();
+            if (!server.isRunning() || server.isHibernated()
+                    || server.getInstance().getStatus() != ServerInstance.ServerStatus.RUNNING) {
+                continue;
+            }
+            // First backup one interval after the server came up
+            long last = lastBackups.computeIfAbsent(entry.getKey(), id -> now);
+            if (now - last >= intervalMinutes * 60_000L) {
+                lastBackups.put(entry.getKey(), now);
+                backupWorld(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Look for newer builds of unpinned servers every updateCheckIntervalMinutes.
+     * The downloads run on the updater's own thread.
+     */
+    private void checkForUpdates() {
+        ModConfig config = EmbeddedMC.getInstance().getConfig();
+        if (!config.isAutoUpdateBuilds()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastUpdateCheck < config.getUpdateCheckIntervalMinutes() * 60_000L) {
+            return;
+        }
+        lastUpdateCheck = now;
+        BuildUpdater.checkForUpdates(instances.values());
+    }
+
+    /**
+     * Drop jars from the shared store that no instance links to any more.
+     */
+    private void collectJarGarbage() {
+        List<Path> liveJars = new ArrayList<>();
+        for (ServerInstance instance : instances.values()) {
+            liveJars.add(instance.getServerJar());
+            liveJars.add(instance.getStagedJar());
+        }
+        JarStore.collectGarbage(liveJars);
+    }
+
+    /**
+     * Thaw a hibernated server. Returns true if the server is running and awake.
+     */
+    public boolean resumeServer(String id) {
+        EmbeddedServer server = runningServers.get(id);
+        return server != null && server.resume();
+    }
+
     public boolean isRunning(String id) {
-        return runningServers.containsKey(id) && runningServers.get(id).isRunning();
+        EmbeddedServer server = runningServers.get(id);
+        return server != null && server.isRunning();
     }
 
     public EmbeddedServer getServer(String id) {
         return runningServers.get(id);
     }
 
+    /**
+     * Find the running server listening on the given port
+     */
+    public EmbeddedServer getServerByPort(int port) {
+        for (EmbeddedServer server : runningServers.values()) {
+            if (server.getInstance().getPort() == port && server.isRunning()) {
+                return server;
+            }
+        }
+        return null;
+    }
+
     /**
      * Get any running server instance for console access
      */
     public ServerInstance getAnyRunningInstance() {
-        for (String id : runningServers.keySet()) {
-            if (runningServers.get(id).isRunning()) {
-                return instances.get(id);
+        ServerInstance hibernated = null;
+        for (EmbeddedServer server : runningServers.values()) {
+            if (server.isRunning()) {
+                // Prefer the server the player is actually on
+                if (!server.isHibernated()) {
+                    return server.getInstance();
+                }
+                if (hibernated == null) {
+                    hibernated = server.getInstance();
+                }
             }
         }
-        return null;
+        return hibernated;
     }
 
     /**
@@ -169,32 +752,29 @@ public class ServerManager {
         return false;
     }
 
+    /**
+     * Snapshot of all instances - safe to iterate on the render thread while
+     * other threads create or delete instances. Until the background load has
+     * reached them, instances from the manifest only have the fields the
+     * server list shows; {@link #getInstance(String)} loads the rest.
+     */
     public List<ServerInstance> getInstances() {
         return new ArrayList<>(instances.values());
     }
 
     public ServerInstance getInstance(String id) {
-        return instances.get(id);
-    }
-
-    private int findAvailablePort() {
-        int port = EmbeddedMC.getInstance().getConfig().getDefaultPort();
-        while (isPortInUse(port)) {
-            port++;
-            if (port > 25600) {
-                port = 25565;
-                break;
-            }
+        ServerInstance instance = instances.get(id);
+        if (instance != null) {
+            ensureLoaded(instance);
         }
-        return port;
+        return instance;
     }
 
-    private boolean isPortInUse(int port) {
-        for (ServerInstance instance : instances.values()) {
-            if (instance.getPort() == port && isRunning(instance.getId())) {
-                return true;
-            }
+    private void ensureLoaded(ServerInstance instance) {
+        try {
+            instance.ensureLoaded();
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.error("Failed to load instance {}", instance.getId(), e);
         }
-        return false;
     }
 }
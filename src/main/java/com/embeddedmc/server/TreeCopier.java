@@ -0,0 +1,117 @@
+package com.embeddedmc.server;
+
+import com.embeddedmc.EmbeddedMC;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Copies directory trees as cheaply as the filesystem allows:
+ * reflinks (copy-on-write, btrfs/XFS) via cp, otherwise hardlinks for files
+ * the server never modifies in place (jars, libraries, caches) and a real
+ * copy only for everything else.
+ */
+public class TreeCopier {
+    private static final boolean LINUX = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux");
+
+    // Directories whose files are only ever replaced, never rewritten
+    // (backups/ is a content-addressed store, objects are written once)
+    private static final List<String> IMMUTABLE_DIRS = List.of("libraries", "cache", "versions", "bundler", "backups");
+
+    public enum Mode {
+        REFLINK, LINKED, COPY
+    }
+
+    /**
+     * Copy {@code source} to {@code target} (which must not exist).
+     *
+     * @param allowHardlinks false when the copy will be modified in place
+     *                       (e.g. restoring a world), so the source stays untouched
+     */
+    public static Mode copyTree(Path source, Path target, boolean allowHardlinks) throws IOException {
+        if (Files.exists(target)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        Files.createDirectories(target.getParent());
+
+        if (LINUX && tryReflink(source, target)) {
+            return Mode.REFLINK;
+        }
+
+        boolean linked = false;
+        try (Stream<Path> walk = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) walk::iterator) {
+                Path dest = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(dest);
+                } else if (allowHardlinks && isImmutable(source.relativize(path)) && tryHardlink(path, dest)) {
+                    linked = true;
+                } else {
+                    Files.copy(path, dest, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+        return linked ? Mode.LINKED : Mode.COPY;
+    }
+
+    private static boolean isImmutable(Path relative) {
+        if (relative.getFileName().toString().endsWith(".jar")) {
+            return true;
+        }
+        return relative.getNameCount() > 1 && IMMUTABLE_DIRS.contains(relative.getName(0).toString());
+    }
+
+    private static boolean tryHardlink(Path source, Path dest) {
+        try {
+            Files.createLink(dest, source);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * cp --reflink=always fails instead of falling back, so a zero exit code
+     * means every file is a copy-on-write clone.
+     */
+    private static boolean tryReflink(Path source, Path target) {
+        try {
+            Process cp = new ProcessBuilder("cp", "-a", "--reflink=always", source.toString(), target.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            cp.getInputStream().transferTo(OutputStream.nullOutputStream());
+            if (cp.waitFor(10, TimeUnit.MINUTES) && cp.exitValue() == 0) {
+                return true;
+            }
+            cp.destroyForcibly();
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Remove whatever cp managed to create before it gave up
+        if (Files.exists(target)) {
+            try (Stream<Path> walk = Files.walk(target)) {
+                walk.sorted((a, b) -> b.compareTo(a)).forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        EmbeddedMC.LOGGER.error("Failed to delete: {}", path, e);
+                    }
+                });
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.error("Failed to clean up partial copy {}", target, e);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,191 @@
+package com.embeddedmc.world;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Minimal streaming NBT reader for chunk records. It only looks for a few
+ * top-level values and skips everything else without building a tag tree,
+ * so scanning thousands of chunks stays cheap. level.dat is small enough to
+ * be read completely.
+ */
+public final class ChunkNbt {
+    public static final byte COMPRESSION_GZIP = 1;
+    public static final byte COMPRESSION_ZLIB = 2;
+    public static final byte COMPRESSION_NONE = 3;
+
+    private static final int TAG_END = 0;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_COMPOUND = 10;
+
+    private ChunkNbt() {}
+
+    /**
+     * InhabitedTime (ticks players spent near the chunk) of a chunk record as
+     * returned by {@link RegionFile#readChunkRecord}, or -1 if it can't be read
+     * (LZ4, external .mcc chunks, corrupt data).
+     */
+    public static long readInhabitedTime(byte[] record) {
+        if (record == null || record.length < 2) {
+            return -1;
+        }
+        try (DataInputStream in = new DataInputStream(open(record))) {
+            if (in.readUnsignedByte() != TAG_COMPOUND) {
+                return -1;
+            }
+            in.skipNBytes(in.readUnsignedShort());
+            return findLong(in, "InhabitedTime", true);
+        } catch (IOException | IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * World spawn in block coordinates {x, z} from level.dat, or null.
+     * Reads Data.SpawnX/SpawnZ and the newer Data.spawn.pos layout.
+     */
+    public static int[] readLevelSpawn(Path levelDat) {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(levelDat)))) {
+            if (in.readUnsignedByte() != TAG_COMPOUND) {
+                return null;
+            }
+            in.skipNBytes(in.readUnsignedShort());
+            Map<?, ?> root = (Map<?, ?>) readPayload(in, TAG_COMPOUND);
+            if (!(root.get("Data") instanceof Map<?, ?> data)) {
+                return null;
+            }
+            if (data.get("SpawnX") instanceof Integer x && data.get("SpawnZ") instanceof Integer z) {
+                return new int[]{x, z};
+            }
+            if (data.get("spawn") instanceof Map<?, ?> spawn && spawn.get("pos") instanceof int[] pos && pos.length == 3) {
+                return new int[]{pos[0], pos[2]};
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read a whole tag payload into plain Java values (Map for compounds,
+     * List for lists, arrays for the array tags). Only for small files like level.dat.
+     */
+    private static Object readPayload(DataInputStream in, int type) throws IOException {
+        return switch (type) {
+            case 1 -> in.readByte();
+            case 2 -> in.readShort();
+            case 3 -> in.readInt();
+            case 4 -> in.readLong();
+            case 5 -> in.readFloat();
+            case 6 -> in.readDouble();
+            case 7 -> in.readNBytes(in.readInt());
+            case 8 -> in.readUTF();
+            case 9 -> {
+                int elementType = in.readUnsignedByte();
+                int length = in.readInt();
+                List<Object> list = new ArrayList<>();
+                for (int i = 0; i < length; i++) {
+                    list.add(readPayload(in, elementType));
+                }
+                yield list;
+            }
+            case 10 -> {
+                Map<String, Object> compound = new HashMap<>();
+                int child;
+                while ((child = in.readUnsignedByte()) != TAG_END) {
+                    String name = in.readUTF();
+                    compound.put(name, readPayload(in, child));
+                }
+                yield compound;
+            }
+            case 11 -> {
+                int[] array = new int[in.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = in.readInt();
+                }
+                yield array;
+            }
+            case 12 -> {
+                long[] array = new long[in.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = in.readLong();
+                }
+                yield array;
+            }
+            default -> throw new IOException("Invalid NBT tag type " + type);
+        };
+    }
+
+    private static InputStream open(byte[] record) throws IOException {
+        InputStream raw = new ByteArrayInputStream(record, 1, record.length - 1);
+        return switch (record[0]) {
+            case COMPRESSION_GZIP -> new GZIPInputStream(raw);
+            case COMPRESSION_ZLIB -> new InflaterInputStream(raw);
+            case COMPRESSION_NONE -> raw;
+            default -> throw new IllegalArgumentException("Unsupported compression " + record[0]);
+        };
+    }
+
+    /**
+     * Scan a compound payload for a long tag. Before 1.18 chunk data sits in
+     * a "Level" compound, so that one is searched too when {@code descend} is set.
+     */
+    private static long findLong(DataInputStream in, String name, boolean descend) throws IOException {
+        while (true) {
+            int type = in.readUnsignedByte();
+            if (type == TAG_END) {
+                return -1;
+            }
+            String tagName = in.readUTF();
+            if (type == TAG_LONG && tagName.equals(name)) {
+                return in.readLong();
+            }
+            if (descend && type == TAG_COMPOUND && tagName.equals("Level")) {
+                long value = findLong(in, name, false);
+                if (value >= 0) {
+                    return value;
+                }
+                continue;
+            }
+            skipPayload(in, type);
+        }
+    }
+
+    private static void skipPayload(DataInputStream in, int type) throws IOException {
+        switch (type) {
+            case 1 -> in.skipNBytes(1);
+            case 2 -> in.skipNBytes(2);
+            case 3, 5 -> in.skipNBytes(4);
+            case 4, 6 -> in.skipNBytes(8);
+            case 7 -> in.skipNBytes(in.readInt());
+            case 8 -> in.skipNBytes(in.readUnsignedShort());
+            case 9 -> {
+                int elementType = in.readUnsignedByte();
+                int length = in.readInt();
+                for (int i = 0; i < length; i++) {
+                    skipPayload(in, elementType);
+                }
+            }
+            case 10 -> {
+                int child;
+                while ((child = in.readUnsignedByte()) != TAG_END) {
+                    in.skipNBytes(in.readUnsignedShort());
+                    skipPayload(in, child);
+                }
+            }
+            case 11 -> in.skipNBytes(in.readInt() * 4L);
+            case 12 -> in.skipNBytes(in.readInt() * 8L);
+            default -> throw new IOException("Invalid NBT tag type " + type);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.embeddedmc.world;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ServerInstance;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Scans the region files of an instance's worlds in parallel and collects
+ * per-region statistics: chunk count, stored size, free (fragmented) sectors
+ * and the InhabitedTime distribution. Results are cached per region file in
+ * the instance directory and reused while the file's mtime and size match,
+ * so rescanning only reads regions the server has written since.
+ */
+public class RegionAnalyzer {
+    private static final Gson GSON = new Gson();
+    private static final String CACHE_FILE = ".region-analysis.json";
+
+    // Upper bounds (exclusive, in ticks) of the InhabitedTime histogram buckets;
+    // bucket 0 is "never", the last bucket collects chunks that couldn't be read
+    public static final long[] INHABITED_BOUNDS = {1, 20L * 60, 20L * 60 * 10, 20L * 60 * 60, Long.MAX_VALUE};
+    public static final int HISTOGRAM_SIZE = INHABITED_BOUNDS.length + 1;
+
+    // Half the cores, the rest stays with the client and running servers (shared with RegionOptimizer)
+    static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("EmbeddedMC-Analyzer-" + thread.getPoolIndex());
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+
+    private final ServerInstance instance;
+    private final AtomicInteger scanned = new AtomicInteger();
+    private volatile int total = -1;
+
+    /**
+     * Statistics of one region file. {@code dimension} is the directory
+     * containing region/, relative to the instance (e.g. "world/DIM-1").
+     */
+    public record RegionStats(String dimension, String file, int x, int z, long mtime, long fileSize,
+                              int chunks, long storedBytes, long largestChunk, int freeSectors,
+                              long totalInhabited, long maxInhabited, int[] inhabitedHistogram) {
+
+        /**
+         * Share of the file's sectors that no chunk uses.
+         */
+        public double getFragmentation() {
+            long sectors = fileSize / RegionFile.SECTOR_BYTES - 2;
+            return sectors > 0 ? (double) freeSectors / sectors : 0;
+        }
+    }
+
+    /**
+     * Totals of a set of regions.
+     */
+    public record Summary(int regions, int chunks, long fileBytes, long storedBytes, int freeSectors, int[] inhabitedHistogram) {
+        public double getFragmentation() {
+            long sectors = fileBytes / RegionFile.SECTOR_BYTES - 2L * regions;
+            return sectors > 0 ? (double) freeSectors / sectors : 0;
+        }
+    }
+
+    public record Report(List<RegionStats> regions, int rescanned, long millis) {
+        public List<String> getDimensions() {
+            return regions.stream().map(RegionStats::dimension).distinct().sorted().toList();
+        }
+
+        public List<RegionStats> getRegions(String dimension) {
+            return regions.stream().filter(region -> region.dimension().equals(dimension)).toList();
+        }
+
+        public Summary summarize(List<RegionStats> stats) {
+            int chunks = 0;
+            int freeSectors = 0;
+            long fileBytes = 0;
+            long storedBytes = 0;
+            int[] histogram = new int[HISTOGRAM_SIZE];
+            for (RegionStats region : stats) {
+                chunks += region.chunks();
+                freeSectors += region.freeSectors();
+                fileBytes += region.fileSize();
+                storedBytes += region.storedBytes();
+                for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+                    histogram[i] += region.inhabitedHistogram()[i];
+                }
+            }
+            return new Summary(stats.size(), chunks, fileBytes, storedBytes, freeSectors, histogram);
+        }
+    }
+
+    public RegionAnalyzer(ServerInstance instance) {
+        this.instance = instance;
+    }
+
+    public int getScanned() {
+        return scanned.get();
+    }
+
+    /**
+     * Number of region files to scan, -1 while they are still being listed.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public CompletableFuture<Report> analyze() {
+        return CompletableFuture.supplyAsync(this::scan, POOL);
+    }
+
+    private Report scan() {
+        long start = System.currentTimeMillis();
+        Path base = instance.getInstancePath();
+        Map<String, RegionStats> cache = loadCache();
+
+        List<Path> files = findRegionFiles(instance.getWorldDirs());
+        total = files.size();
+        AtomicInteger rescanned = new AtomicInteger();
+
+        // Runs on the analyzer pool, so the parallel stream uses its workers
+        List<RegionStats> regions = files.parallelStream().map(file -> {
+            try {
+                String relative = base.relativize(file).toString().replace('\\', '/');
+                RegionStats cached = cache.get(relative);
+                long mtime = Files.getLastModifiedTime(file).toMillis();
+                if (cached != null && cached.mtime() == mtime && cached.fileSize() == Files.size(file)) {
+                    return cached;
+                }
+                rescanned.incrementAndGet();
+                return analyzeRegion(file, relative, base.relativize(file.getParent().getParent()).toString().replace('\\', '/'));
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.warn("Failed to analyze region {}", file, e);
+                return null;
+            } finally {
+                scanned.incrementAndGet();
+            }
+        }).filter(region -> region != null).toList();
+
+        if (rescanned.get() > 0 || regions.size() != cache.size()) {
+            saveCache(regions);
+        }
+        return new Report(regions, rescanned.get(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * All r.x.z.mca files in region/ directories (overworld, DIM-1, DIM1 and
+     * datapack dimensions). entities/ and poi/ use the same format but are skipped.
+     */
+    public static List<Path> findRegionFiles(List<Path> worldDirs) {
+        List<Path> files = new ArrayList<>();
+        for (Path worldDir : worldDirs) {
+            try (Stream<Path> walk = Files.walk(worldDir)) {
+                walk.filter(path -> RegionFile.isRegionFile(path)
+                                && path.getParent().getFileName().toString().equals("region")
+                                && Files.isRegularFile(path))
+                    .forEach(files::add);
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.warn("Failed to list regions in {}", worldDir, e);
+            }
+        }
+        return files;
+    }
+
+    private static RegionStats analyzeRegion(Path file, String relative, String dimension) throws IOException {
+        int[] coords = RegionFile.parseCoordinates(file);
+        long mtime = Files.getLastModifiedTime(file).toMillis();
+
+        try (RegionFile region = RegionFile.open(file)) {
+            int fileSectors = (int) ((region.getFileSize() + RegionFile.SECTOR_BYTES - 1) / RegionFile.SECTOR_BYTES);
+            BitSet used = new BitSet(fileSectors);
+            used.set(0, Math.min(2, fileSectors));
+
+            int chunks = 0;
+            long storedBytes = 0;
+            long largestChunk = 0;
+            long totalInhabited = 0;
+            long maxInhabited = 0;
+            int[] histogram = new int[HISTOGRAM_SIZE];
+
+            for (int i = 0; i < RegionFile.CHUNKS; i++) {
+                if (!region.hasChunk(i)) {
+                    continue;
+                }
+                chunks++;
+                used.set(region.getSectorOffset(i), region.getSectorOffset(i) + region.getSectorCount(i));
+
+                byte[] record = region.readChunkRecord(i);
+                long inhabited = ChunkNbt.readInhabitedTime(record);
+                if (record != null) {
+                    storedBytes += record.length;
+                    largestChunk = Math.max(largestChunk, record.length);
+                }
+
+                if (inhabited < 0) {
+                    histogram[HISTOGRAM_SIZE - 1]++;
+                    continue;
+                }
+                totalInhabited += inhabited;
+                maxInhabited = Math.max(maxInhabited, inhabited);
+                histogram[bucket(inhabited)]++;
+            }
+
+            int freeSectors = Math.max(0, fileSectors - used.cardinality());
+            return new RegionStats(dimension, relative, coords[0], coords[1], mtime, region.getFileSize(),
+                    chunks, storedBytes, largestChunk, freeSectors, totalInhabited, maxInhabited, histogram);
+        }
+    }
+
+    private static int bucket(long inhabited) {
+        for (int i = 0; i < INHABITED_BOUNDS.length; i++) {
+            if (inhabited < INHABITED_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return INHABITED_BOUNDS.length - 1;
+    }
+
+    private Map<String, RegionStats> loadCache() {
+        Path file = instance.getInstancePath().resolve(CACHE_FILE);
+        if (Files.exists(file)) {
+            try {
+                Map<String, RegionStats> cache = GSON.fromJson(Files.readString(file),
+                        new TypeToken<HashMap<String, RegionStats>>() {}.getType());
+                if (cache != null) {
+                    return cache;
+                }
+            } catch (Exception e) {
+                EmbeddedMC.LOGGER.warn("Ignoring unreadable region analysis cache {}", file, e);
+            }
+        }
+        return new HashMap<>();
+    }
+
+    private void saveCache(List<RegionStats> regions) {
+        Map<String, RegionStats> cache = new LinkedHashMap<>();
+        regions.stream()
+                .sorted(Comparator.comparing(RegionStats::file))
+                .forEach(region -> cache.put(region.file(), region));
+
+        Path file = instance.getInstancePath().resolve(CACHE_FILE);
+        Path temp = file.resolveSibling(CACHE_FILE + ".tmp");
+        try {
+            Files.writeString(temp, GSON.toJson(cache));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to save region analysis cache", e);
+        }
+    }
+}
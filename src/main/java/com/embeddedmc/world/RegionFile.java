@@ -0,0 +1,196 @@
+package com.embeddedmc.world;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of an Anvil region file (.mca): a 4 KiB location table
+ * (sector offset + sector count per chunk), a 4 KiB timestamp table and the
+ * chunk records, each aligned to 4 KiB sectors.
+ */
+public class RegionFile implements Closeable {
+    public static final int SECTOR_BYTES = 4096;
+    public static final int CHUNKS = 1024;
+    public static final int HEADER_BYTES = SECTOR_BYTES * 2;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int[] sectorOffsets = new int[CHUNKS];
+    private final int[] sectorCounts = new int[CHUNKS];
+    private final int[] timestamps = new int[CHUNKS];
+
+    private RegionFile(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.fileSize = channel.size();
+
+        if (fileSize < HEADER_BYTES) {
+            // Empty or truncated region - treat as having no chunks
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, 0);
+        header.flip();
+        for (int i = 0; i < CHUNKS; i++) {
+            int location = header.getInt();
+            sectorOffsets[i] = location >>> 8;
+            sectorCounts[i] = location & 0xFF;
+        }
+        for (int i = 0; i < CHUNKS; i++) {
+            timestamps[i] = header.getInt();
+        }
+    }
+
+    public static RegionFile open(Path path) throws IOException {
+        return new RegionFile(path, FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public boolean hasChunk(int index) {
+        return sectorOffsets[index] >= 2 && sectorCounts[index] > 0
+                && (long) (sectorOffsets[index] + sectorCounts[index]) * SECTOR_BYTES <= fileSize;
+    }
+
+    public int getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public int getSectorOffset(int index) {
+        return sectorOffsets[index];
+    }
+
+    public int getSectorCount(int index) {
+        return sectorCounts[index];
+    }
+
+    /**
+     * Read a chunk record: the compression type byte followed by the chunk
+     * data. Returns null if the chunk is absent or its record is corrupt.
+     */
+    public byte[] readChunkRecord(int index) throws IOException {
+        if (!hasChunk(index)) {
+            return null;
+        }
+
+        long position = (long) sectorOffsets[index] * SECTOR_BYTES;
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        readFully(lengthBuffer, position);
+        lengthBuffer.flip();
+        int length = lengthBuffer.getInt();
+        if (length <= 0 || length + 4L > (long) sectorCounts[index] * SECTOR_BYTES) {
+            return null;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(record, position + 4);
+        return record.array();
+    }
+
+    /**
+     * The sectors allocated to a chunk as they are on disk, for copying a
+     * chunk whose record can't be parsed. Null if the chunk is absent.
+     */
+    public byte[] readSectors(int index) throws IOException {
+        if (!hasChunk(index)) {
+            return null;
+        }
+        ByteBuffer sectors = ByteBuffer.allocate(sectorCounts[index] * SECTOR_BYTES);
+        readFully(sectors, (long) sectorOffsets[index] * SECTOR_BYTES);
+        return sectors.array();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of region file " + path);
+            }
+        }
+    }
+
+    /**
+     * Write a region file with the given chunk records (null = no chunk),
+     * packed back to back with no free sectors in between.
+     */
+    public static void write(Path target, byte[][] records, int[] timestamps) throws IOException {
+        write(target, records, null, timestamps);
+    }
+
+    /**
+     * Like {@link #write(Path, byte[][], int[])}, with chunks that have no
+     * record taken from {@code rawSectors} (from {@link #readSectors}) unchanged.
+     */
+    public static void write(Path target, byte[][] records, byte[][] rawSectors, int[] timestamps) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        int sector = 2;
+        for (int i = 0; i < CHUNKS; i++) {
+            byte[] raw = rawSectors != null && records[i] == null ? rawSectors[i] : null;
+            if (records[i] == null && raw == null) {
+                header.putInt(i * 4, 0);
+            } else {
+                int sectors = raw != null ? raw.length / SECTOR_BYTES : sectorsFor(records[i]);
+                header.putInt(i * 4, sector << 8 | Math.min(sectors, 255));
+                sector += sectors;
+            }
+            header.putInt(SECTOR_BYTES + i * 4, timestamps[i]);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target), 1 << 16))) {
+            out.write(header.array());
+            for (int i = 0; i < CHUNKS; i++) {
+                byte[] record = records[i];
+                if (record != null) {
+                    out.writeInt(record.length);
+                    out.write(record);
+                    out.write(new byte[sectorsFor(record) * SECTOR_BYTES - record.length - 4]);
+                } else if (rawSectors != null && rawSectors[i] != null) {
+                    out.write(rawSectors[i]);
+                }
+            }
+        }
+    }
+
+    private static int sectorsFor(byte[] record) {
+        return (record.length + 4 + SECTOR_BYTES - 1) / SECTOR_BYTES;
+    }
+
+    /**
+     * Region coordinates from a file name like r.-1.2.mca, or null.
+     */
+    public static int[] parseCoordinates(Path file) {
+        String[] parts = file.getFileName().toString().split("\\.");
+        if (parts.length != 4 || !parts[0].equals("r") || !parts[3].equals("mca")) {
+            return null;
+        }
+        try {
+            return new int[]{Integer.parseInt(parts[1]), Integer.parseInt(parts[2])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static boolean isRegionFile(Path file) {
+        return parseCoordinates(file) != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
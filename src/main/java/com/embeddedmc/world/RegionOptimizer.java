@@ -0,0 +1,250 @@
+package com.embeddedmc.world;
+
+import com.embeddedmc.EmbeddedMC;
+import com.embeddedmc.config.ServerInstance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Offline world optimizer for stopped instances. Rewrites region files with
+ * all chunks packed back to back (dropping the free sectors Minecraft leaves
+ * behind when chunks grow) and can optionally delete chunks nobody spent
+ * time in, so they are generated fresh when they are visited again.
+ * Chunks within the protected radius around spawn (the world origin in other
+ * dimensions) are always kept, as are chunks whose InhabitedTime can't be read.
+ * Chunks whose record can't be read at all are copied sector for sector.
+ */
+public class RegionOptimizer {
+    // Per-chunk data stored next to region/ in the same format
+    private static final List<String> SIBLING_DIRS = List.of("entities", "poi");
+
+    private final ServerInstance instance;
+    private final Options options;
+    private final AtomicInteger processed = new AtomicInteger();
+    private volatile int total = -1;
+
+    /**
+     * @param minInhabitedTicks   drop chunks with a lower InhabitedTime (0 = only compact)
+     * @param protectRadiusChunks chunks this close to spawn/origin are never dropped
+     */
+    public record Options(long minInhabitedTicks, int protectRadiusChunks) {
+        public boolean trims() {
+            return minInhabitedTicks > 0;
+        }
+    }
+
+    public record DimensionReport(String dimension, int regions, int rewritten, int deleted,
+                                  int chunksBefore, int chunksAfter, long bytesBefore, long bytesAfter) {}
+
+    public record Report(List<DimensionReport> dimensions, long millis) {
+        public long bytesBefore() {
+            return dimensions.stream().mapToLong(DimensionReport::bytesBefore).sum();
+        }
+
+        public long bytesAfter() {
+            return dimensions.stream().mapToLong(DimensionReport::bytesAfter).sum();
+        }
+
+        public int chunksDropped() {
+            return dimensions.stream().mapToInt(dimension -> dimension.chunksBefore() - dimension.chunksAfter()).sum();
+        }
+
+        /**
+         * Before/after table, one line per dimension plus a total.
+         */
+        public List<String> format() {
+            List<String> lines = new ArrayList<>();
+            for (DimensionReport dimension : dimensions) {
+                lines.add(String.format("%-20s %5d regions (%d rewritten, %d deleted)  %7d -> %7d chunks  %s -> %s",
+                        dimension.dimension(), dimension.regions(), dimension.rewritten(), dimension.deleted(),
+                        dimension.chunksBefore(), dimension.chunksAfter(),
+                        formatSize(dimension.bytesBefore()), formatSize(dimension.bytesAfter())));
+            }
+            lines.add(String.format("Total: %s -> %s (%d chunks dropped) in %d ms",
+                    formatSize(bytesBefore()), formatSize(bytesAfter()), chunksDropped(), millis));
+            return lines;
+        }
+    }
+
+    private record RegionResult(String dimension, boolean rewritten, boolean deleted,
+                                int chunksBefore, int chunksAfter, long bytesBefore, long bytesAfter) {}
+
+    private record FileResult(boolean rewritten, boolean deleted, int chunksBefore, int chunksAfter,
+                              long bytesBefore, long bytesAfter) {}
+
+    @FunctionalInterface
+    private interface ChunkFilter {
+        boolean keep(int index, byte[] record);
+    }
+
+    public RegionOptimizer(ServerInstance instance, Options options) {
+        this.instance = instance;
+        this.options = options;
+    }
+
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * Number of region files to process, -1 while they are still being listed.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Optimize all worlds of the instance. The server must not be running.
+     */
+    public CompletableFuture<Report> optimize() {
+        return CompletableFuture.supplyAsync(this::run, RegionAnalyzer.POOL);
+    }
+
+    private Report run() {
+        long start = System.currentTimeMillis();
+        Path base = instance.getInstancePath();
+        Path overworld = instance.getWorldDir();
+
+        int[] spawn = ChunkNbt.readLevelSpawn(overworld.resolve("level.dat"));
+        int[] spawnChunk = spawn != null ? new int[]{spawn[0] >> 4, spawn[1] >> 4} : new int[]{0, 0};
+
+        List<Path> files = RegionAnalyzer.findRegionFiles(instance.getWorldDirs());
+        total = files.size();
+
+        // Runs on the analyzer pool, so the parallel stream uses its workers
+        List<RegionResult> results = files.parallelStream().map(file -> {
+            Path dimensionDir = file.getParent().getParent();
+            String dimension = base.relativize(dimensionDir).toString().replace('\\', '/');
+            int[] center = dimensionDir.equals(overworld) ? spawnChunk : new int[]{0, 0};
+            try {
+                return optimizeRegion(file, dimension, center);
+            } catch (IOException e) {
+                EmbeddedMC.LOGGER.error("Failed to optimize region {}", file, e);
+                return null;
+            } finally {
+                processed.incrementAndGet();
+            }
+        }).filter(result -> result != null).toList();
+
+        Map<String, List<RegionResult>> byDimension = results.stream()
+                .collect(Collectors.groupingBy(RegionResult::dimension, TreeMap::new, Collectors.toList()));
+        List<DimensionReport> dimensions = new ArrayList<>();
+        byDimension.forEach((dimension, regions) -> dimensions.add(new DimensionReport(dimension, regions.size(),
+                (int) regions.stream().filter(RegionResult::rewritten).count(),
+                (int) regions.stream().filter(RegionResult::deleted).count(),
+                regions.stream().mapToInt(RegionResult::chunksBefore).sum(),
+                regions.stream().mapToInt(RegionResult::chunksAfter).sum(),
+                regions.stream().mapToLong(RegionResult::bytesBefore).sum(),
+                regions.stream().mapToLong(RegionResult::bytesAfter).sum())));
+
+        Report report = new Report(dimensions, System.currentTimeMillis() - start);
+        EmbeddedMC.LOGGER.info("Optimized worlds of instance {}:", instance.getId());
+        for (String line : report.format()) {
+            EmbeddedMC.LOGGER.info("  {}", line);
+        }
+        return report;
+    }
+
+    private RegionResult optimizeRegion(Path file, String dimension, int[] center) throws IOException {
+        int[] coords = RegionFile.parseCoordinates(file);
+        boolean[] dropped = new boolean[RegionFile.CHUNKS];
+        long radiusSquared = (long) options.protectRadiusChunks() * options.protectRadiusChunks();
+
+        FileResult region = compact(file, (index, record) -> {
+            if (!options.trims()) {
+                return true;
+            }
+            long dx = coords[0] * 32L + (index & 31) - center[0];
+            long dz = coords[1] * 32L + (index >> 5) - center[1];
+            if (dx * dx + dz * dz <= radiusSquared) {
+                return true;
+            }
+            long inhabited = ChunkNbt.readInhabitedTime(record);
+            if (inhabited < 0 || inhabited >= options.minInhabitedTicks()) {
+                return true;
+            }
+            dropped[index] = true;
+            return false;
+        });
+
+        long bytesBefore = region.bytesBefore();
+        long bytesAfter = region.bytesAfter();
+        for (String sibling : SIBLING_DIRS) {
+            Path siblingFile = file.getParent().resolveSibling(sibling).resolve(file.getFileName().toString());
+            if (Files.isRegularFile(siblingFile)) {
+                FileResult result = compact(siblingFile, (index, record) -> !dropped[index]);
+                bytesBefore += result.bytesBefore();
+                bytesAfter += result.bytesAfter();
+            }
+        }
+
+        return new RegionResult(dimension, region.rewritten(), region.deleted(),
+                region.chunksBefore(), region.chunksAfter(), bytesBefore, bytesAfter);
+    }
+
+    /**
+     * Rewrite one .mca file with the chunks the filter keeps, packed without
+     * gaps. Files that are already packed and lose no chunks are left alone;
+     * files whose chunks were all rejected by the filter are deleted.
+     */
+    private static FileResult compact(Path file, ChunkFilter filter) throws IOException {
+        byte[][] records = new byte[RegionFile.CHUNKS][];
+        byte[][] unreadable = new byte[RegionFile.CHUNKS][];
+        int[] timestamps = new int[RegionFile.CHUNKS];
+        int chunksBefore = 0;
+        int chunksAfter = 0;
+        long packedSize = RegionFile.HEADER_BYTES;
+        long fileSize;
+
+        try (RegionFile region = RegionFile.open(file)) {
+            fileSize = region.getFileSize();
+            for (int i = 0; i < RegionFile.CHUNKS; i++) {
+                timestamps[i] = region.getTimestamp(i);
+                if (!region.hasChunk(i)) {
+                    continue;
+                }
+                chunksBefore++;
+                byte[] record = region.readChunkRecord(i);
+                if (record == null) {
+                    // Can't be judged, so it is kept exactly as it is
+                    unreadable[i] = region.readSectors(i);
+                    chunksAfter++;
+                    packedSize += unreadable[i].length;
+                } else if (filter.keep(i, record)) {
+                    records[i] = record;
+                    chunksAfter++;
+                    packedSize += (long) (record.length + 4 + RegionFile.SECTOR_BYTES - 1) / RegionFile.SECTOR_BYTES * RegionFile.SECTOR_BYTES;
+                }
+            }
+        }
+
+        if (chunksAfter == 0) {
+            Files.delete(file);
+            return new FileResult(true, true, chunksBefore, 0, fileSize, 0);
+        }
+        if (chunksAfter == chunksBefore && packedSize == fileSize) {
+            return new FileResult(false, false, chunksBefore, chunksAfter, fileSize, fileSize);
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        RegionFile.write(temp, records, unreadable, timestamps);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new FileResult(true, false, chunksBefore, chunksAfter, fileSize, packedSize);
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes < 1024 * 1024) return (bytes / 1024) + " KB";
+        if (bytes < 1024L * 1024 * 1024) return (bytes / (1024 * 1024)) + " MB";
+        return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+}
@@ -0,0 +1,380 @@
+package com.embeddedmc.world;
+
+import com.embeddedmc.EmbeddedMC;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Incremental, deduplicating world backups.
+ *
+ * Everything is stored in a content-addressed object store (objects/ab/abcd...,
+ * keyed by SHA-256). Region files are split into chunks: each region gets an
+ * index object listing the timestamp and chunk hash of all 1024 slots, so a
+ * snapshot only stores chunks whose timestamp changed since the previous
+ * snapshot. Unchanged regions (same mtime and size) and unchanged files are
+ * not even read. A chunk whose record can't be parsed is stored as its raw
+ * sectors, so a restore reproduces the region as it was on disk.
+ *
+ * Layout: backups/objects/..., backups/snapshots/yyyyMMdd-HHmmss-SSS.json
+ *
+ * Old snapshots are removed by {@link #prune}, which also deletes the objects
+ * no remaining snapshot refers to.
+ */
+public class WorldBackup {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final DateTimeFormatter SNAPSHOT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final HexFormat HEX = HexFormat.of();
+    // Set in an index slot's length byte if the object holds raw sectors instead of a record
+    private static final int RAW_SECTORS = 0x80;
+
+    private final Path backupDir;
+    private final Path objectsDir;
+    private final Path snapshotsDir;
+    private final long maxBytesPerSecond;
+
+    // Throttling state for the current run
+    private long throttleStart;
+    private long bytesRead;
+    private long bytesStored;
+
+    public record FileEntry(long mtime, long size, String hash, boolean region) {}
+
+    public record Snapshot(long created, Map<String, FileEntry> files) {}
+
+    public record Result(String name, int files, long bytesRead, long bytesStored, long millis) {}
+
+    public WorldBackup(Path backupDir, long maxBytesPerSecond) {
+        this.backupDir = backupDir;
+        this.objectsDir = backupDir.resolve("objects");
+        this.snapshotsDir = backupDir.resolve("snapshots");
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    /**
+     * Snapshot the given world directories. Paths in the snapshot are
+     * relative to {@code baseDir} (the instance directory).
+     */
+    public Result createSnapshot(List<Path> worldDirs, Path baseDir) throws IOException {
+        long start = System.currentTimeMillis();
+        throttleStart = start;
+        bytesRead = 0;
+        bytesStored = 0;
+
+        Snapshot previous = loadLatestSnapshot();
+        Map<String, FileEntry> files = new LinkedHashMap<>();
+
+        for (Path worldDir : worldDirs) {
+            List<Path> paths;
+            try (Stream<Path> walk = Files.walk(worldDir)) {
+                paths = walk.filter(Files::isRegularFile).toList();
+            }
+
+            for (Path file : paths) {
+                if (file.getFileName().toString().equals("session.lock")) {
+                    continue;
+                }
+                String relative = baseDir.relativize(file).toString().replace('\\', '/');
+                FileEntry old = previous != null ? previous.files().get(relative) : null;
+                long mtime = Files.getLastModifiedTime(file).toMillis();
+                long size = Files.size(file);
+
+                if (old != null && old.mtime() == mtime && old.size() == size && hasObject(old.hash())) {
+                    files.put(relative, old);
+                } else if (RegionFile.isRegionFile(file)) {
+                    files.put(relative, new FileEntry(mtime, size, backupRegion(file, old), true));
+                } else {
+                    byte[] data = Files.readAllBytes(file);
+                    throttle(data.length);
+                    files.put(relative, new FileEntry(mtime, size, putObject(data), false));
+                }
+            }
+        }
+
+        String name = LocalDateTime.now().format(SNAPSHOT_NAME);
+        Path snapshotFile = snapshotsDir.resolve(name + ".json");
+        Files.createDirectories(snapshotsDir);
+        if (Files.exists(snapshotFile)) {
+            // Two backups within the same millisecond; never replace a snapshot
+            throw new FileAlreadyExistsException(snapshotFile.toString());
+        }
+        writeAtomically(snapshotFile, GSON.toJson(new Snapshot(start, files)).getBytes());
+
+        return new Result(name, files.size(), bytesRead, bytesStored, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Store the changed chunks of one region and return the hash of its index.
+     */
+    private String backupRegion(Path file, FileEntry old) throws IOException {
+        int[] oldTimestamps = null;
+        String[] oldHashes = null;
+        boolean[] oldRaw = null;
+        if (old != null && old.region() && hasObject(old.hash())) {
+            oldTimestamps = new int[RegionFile.CHUNKS];
+            oldHashes = new String[RegionFile.CHUNKS];
+            oldRaw = new boolean[RegionFile.CHUNKS];
+            readRegionIndex(old.hash(), oldTimestamps, oldHashes, oldRaw);
+        }
+
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        try (RegionFile region = RegionFile.open(file);
+             DataOutputStream out = new DataOutputStream(index)) {
+            throttle(RegionFile.HEADER_BYTES);
+
+            for (int i = 0; i < RegionFile.CHUNKS; i++) {
+                String hash = null;
+                boolean raw = false;
+                int timestamp = region.getTimestamp(i);
+                if (region.hasChunk(i)) {
+                    if (oldHashes != null && oldHashes[i] != null && oldTimestamps[i] == timestamp) {
+                        // Chunk not saved since the last snapshot
+                        hash = oldHashes[i];
+                        raw = oldRaw[i];
+                    } else {
+                        byte[] data = region.readChunkRecord(i);
+                        if (data == null) {
+                            data = region.readSectors(i);
+                            raw = true;
+                        }
+                        throttle(data.length);
+                        hash = putObject(data);
+                    }
+                }
+
+                out.writeInt(timestamp);
+                if (hash != null) {
+                    out.writeByte(raw ? RAW_SECTORS | 32 : 32);
+                    out.write(HEX.parseHex(hash));
+                } else {
+                    out.writeByte(0);
+                }
+            }
+        }
+        return putObject(index.toByteArray());
+    }
+
+    private void readRegionIndex(String hash, int[] timestamps, String[] hashes, boolean[] raw) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(objectPath(hash)))) {
+            for (int i = 0; i < RegionFile.CHUNKS; i++) {
+                timestamps[i] = in.readInt();
+                int flags = in.readUnsignedByte();
+                int length = flags & ~RAW_SECTORS;
+                raw[i] = (flags & RAW_SECTORS) != 0;
+                if (length > 0) {
+                    byte[] chunkHash = new byte[length];
+                    in.readFully(chunkHash);
+                    hashes[i] = HEX.formatHex(chunkHash);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restore a snapshot into {@code baseDir}, overwriting the world files it contains.
+     */
+    public void restore(String name, Path baseDir) throws IOException {
+        Snapshot snapshot = loadSnapshot(name);
+        if (snapshot == null) {
+            throw new IOException("Snapshot not found: " + name);
+        }
+
+        for (Map.Entry<String, FileEntry> entry : snapshot.files().entrySet()) {
+            Path target = baseDir.resolve(entry.getKey());
+            Files.createDirectories(target.getParent());
+            FileEntry file = entry.getValue();
+
+            if (file.region()) {
+                restoreRegion(file.hash(), target);
+            } else {
+                Files.copy(objectPath(file.hash()), target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.setLastModifiedTime(target, FileTime.fromMillis(file.mtime()));
+        }
+    }
+
+    private void restoreRegion(String indexHash, Path target) throws IOException {
+        int[] timestamps = new int[RegionFile.CHUNKS];
+        String[] hashes = new String[RegionFile.CHUNKS];
+        boolean[] raw = new boolean[RegionFile.CHUNKS];
+        readRegionIndex(indexHash, timestamps, hashes, raw);
+
+        byte[][] records = new byte[RegionFile.CHUNKS][];
+        byte[][] rawSectors = new byte[RegionFile.CHUNKS][];
+        for (int i = 0; i < RegionFile.CHUNKS; i++) {
+            if (hashes[i] != null) {
+                (raw[i] ? rawSectors : records)[i] = Files.readAllBytes(objectPath(hashes[i]));
+            }
+        }
+        RegionFile.write(target, records, rawSectors, timestamps);
+    }
+
+    /**
+     * Delete all but the newest {@code keep} snapshots, then the objects only
+     * they referred to. Returns the number of snapshots deleted; {@code keep}
+     * of 0 or less keeps everything.
+     */
+    public int prune(int keep) throws IOException {
+        List<String> names = listSnapshots();
+        if (keep <= 0 || names.size() <= keep) {
+            return 0;
+        }
+
+        int removed = names.size() - keep;
+        for (String name : names.subList(0, removed)) {
+            Files.deleteIfExists(snapshotsDir.resolve(name + ".json"));
+        }
+
+        // Mark everything the remaining snapshots use; regions share their
+        // index object as long as they are unchanged, so read each one once
+        Set<String> live = new HashSet<>();
+        for (String name : names.subList(removed, names.size())) {
+            Snapshot snapshot = loadSnapshot(name);
+            if (snapshot == null) {
+                continue;
+            }
+            for (FileEntry file : snapshot.files().values()) {
+                if (live.add(file.hash()) && file.region() && hasObject(file.hash())) {
+                    int[] timestamps = new int[RegionFile.CHUNKS];
+                    String[] hashes = new String[RegionFile.CHUNKS];
+                    readRegionIndex(file.hash(), timestamps, hashes, new boolean[RegionFile.CHUNKS]);
+                    for (String hash : hashes) {
+                        if (hash != null) {
+                            live.add(hash);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (!Files.isDirectory(objectsDir)) {
+            return removed;
+        }
+
+        // Unreferenced objects and temp files left by an interrupted backup
+        List<Path> objects;
+        try (Stream<Path> walk = Files.walk(objectsDir)) {
+            objects = walk.filter(Files::isRegularFile).toList();
+        }
+        for (Path object : objects) {
+            if (!live.contains(object.getFileName().toString())) {
+                Files.deleteIfExists(object);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Snapshot names, oldest first.
+     */
+    public List<String> listSnapshots() throws IOException {
+        List<String> names = new ArrayList<>();
+        if (!Files.isDirectory(snapshotsDir)) {
+            return names;
+        }
+        try (Stream<Path> files = Files.list(snapshotsDir)) {
+            files.map(file -> file.getFileName().toString())
+                 .filter(file -> file.endsWith(".json"))
+                 .map(file -> file.substring(0, file.length() - 5))
+                 .sorted()
+                 .forEach(names::add);
+        }
+        return names;
+    }
+
+    private Snapshot loadLatestSnapshot() {
+        try {
+            List<String> names = listSnapshots();
+            return names.isEmpty() ? null : loadSnapshot(names.get(names.size() - 1));
+        } catch (IOException e) {
+            EmbeddedMC.LOGGER.warn("Failed to read previous snapshot, doing a full backup", e);
+            return null;
+        }
+    }
+
+    private Snapshot loadSnapshot(String name) throws IOException {
+        Path file = snapshotsDir.resolve(name + ".json");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        return GSON.fromJson(Files.readString(file), Snapshot.class);
+    }
+
+    private Path objectPath(String hash) {
+        return objectsDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private boolean hasObject(String hash) {
+        return hash != null && Files.exists(objectPath(hash));
+    }
+
+    private String putObject(byte[] data) throws IOException {
+        String hash = HEX.formatHex(sha256(data));
+        Path path = objectPath(hash);
+        if (!Files.exists(path)) {
+            Files.createDirectories(path.getParent());
+            writeAtomically(path, data);
+            bytesStored += data.length;
+        }
+        return hash;
+    }
+
+    private void writeAtomically(Path target, byte[] data) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, data);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keep the average read rate below maxBytesPerSecond so backups don't
+     * compete with the running server for disk bandwidth.
+     */
+    private void throttle(long bytes) {
+        bytesRead += bytes;
+        if (maxBytesPerSecond <= 0) {
+            return;
+        }
+        long expectedMillis = bytesRead * 1000 / maxBytesPerSecond;
+        long elapsed = System.currentTimeMillis() - throttleStart;
+        if (expectedMillis > elapsed) {
+            try {
+                Thread.sleep(expectedMillis - elapsed);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public Path getBackupDir() {
+        return backupDir;
+    }
+}
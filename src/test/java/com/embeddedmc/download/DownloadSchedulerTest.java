@@ -0,0 +1,47 @@
+package com.embeddedmc.download;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownloadSchedulerTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void emptyBucketMakesTheFirstReadWait() {
+        DownloadScheduler.TokenBucket bucket = new DownloadScheduler.TokenBucket(0);
+        assertEquals(SECOND, bucket.take(1000, 1000, 0));
+    }
+
+    @Test
+    void debtIsPaidOffBeforeNewTokensCount() {
+        DownloadScheduler.TokenBucket bucket = new DownloadScheduler.TokenBucket(0);
+        bucket.take(2000, 1000, 0);
+        // One of the two seconds of debt has passed
+        assertEquals(SECOND + SECOND / 2, bucket.take(500, 1000, SECOND));
+    }
+
+    @Test
+    void burstIsCappedAtOneSecond() {
+        DownloadScheduler.TokenBucket bucket = new DownloadScheduler.TokenBucket(0);
+        assertEquals(0, bucket.take(1000, 1000, 10 * SECOND));
+        assertEquals(SECOND / 2, bucket.take(500, 1000, 10 * SECOND));
+    }
+
+    @Test
+    void keepsTheAverageRate() {
+        DownloadScheduler.TokenBucket bucket = new DownloadScheduler.TokenBucket(0);
+        long now = 0;
+        long bytes = 0;
+        // Reads of uneven size, each followed by the wait the bucket asks for
+        for (int i = 0; i < 1000; i++) {
+            long read = 1 + (i * 7919L) % 65536;
+            now += bucket.take(read, 1024 * 1024, now);
+            bytes += read;
+        }
+        double seconds = now / (double) SECOND;
+        double rate = bytes / seconds;
+        assertTrue(Math.abs(rate - 1024 * 1024) < 1024, "rate " + rate);
+    }
+}
@@ -0,0 +1,101 @@
+package com.embeddedmc.download;
+
+import com.google.gson.stream.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PaperAPITest {
+    // Shape of /v2/projects/paper/versions/<version>/builds, oldest first
+    private static final String BUILDS = """
+            {
+              "project_id": "paper",
+              "project_name": "Paper",
+              "version": "1.21.11",
+              "builds": [
+                {
+                  "build": 40,
+                  "time": "2025-12-01T10:15:30.000Z",
+                  "channel": "experimental",
+                  "promoted": false,
+                  "changes": [
+                    {"commit": "a1", "summary": "Update upstream", "message": "Update upstream\\n\\nLong text"},
+                    {"commit": "a2", "summary": "Fix chunk loading", "message": "Fix chunk loading"}
+                  ],
+                  "downloads": {"application": {"name": "paper-1.21.11-40.jar", "sha256": "AB12"}}
+                },
+                {
+                  "build": 41,
+                  "time": "not a date",
+                  "channel": "default",
+                  "promoted": false,
+                  "changes": [],
+                  "downloads": {"application": {"name": "paper-1.21.11-41.jar", "sha256": null}}
+                }
+              ]
+            }
+            """;
+
+    private static JsonReader json(String text) {
+        return new JsonReader(new StringReader(text));
+    }
+
+    @Test
+    void readsVersionsNewestFirst() throws IOException {
+        String project = """
+                {"project_id": "paper", "version_groups": ["1.20", "1.21"], "versions": ["1.20.6", "1.21.1", "1.21.11"]}
+                """;
+        assertEquals(List.of("1.21.11", "1.21.1", "1.20.6"), ApiJson.readVersions(json(project)));
+    }
+
+    @Test
+    void readsTheLastBuildNumber() throws IOException {
+        assertEquals(41, PaperAPI.readLatestBuild(json(BUILDS)));
+        assertEquals(-1, PaperAPI.readLatestBuild(json("{\"builds\": []}")));
+        assertEquals(-1, PaperAPI.readLatestBuild(json("{\"error\": \"Version not found.\"}")));
+    }
+
+    @Test
+    void readsBuildsNewestFirst() throws IOException {
+        List<BuildInfo> builds = PaperAPI.readBuilds(json(BUILDS));
+
+        assertEquals(2, builds.size());
+        BuildInfo newest = builds.get(0);
+        assertEquals(41, newest.build());
+        assertEquals("default", newest.channel());
+        // Unparseable times are unknown, not an error
+        assertEquals(0, newest.time());
+        assertEquals(List.of(), newest.changes());
+
+        BuildInfo oldest = builds.get(1);
+        assertEquals(40, oldest.build());
+        assertEquals(1764584130000L, oldest.time());
+        assertEquals("experimental", oldest.channel());
+        assertEquals(List.of("Update upstream", "Fix chunk loading"), oldest.changes());
+    }
+
+    @Test
+    void readsTheApplicationDownload() throws IOException {
+        String build = """
+                {
+                  "project_id": "paper",
+                  "build": 40,
+                  "changes": [{"commit": "a1", "summary": "s", "message": "m"}],
+                  "downloads": {
+                    "application": {"name": "paper-1.21.11-40.jar", "sha256": "AB12"},
+                    "mojang-mappings": {"name": "mappings.jar", "sha256": "CD34"}
+                  }
+                }
+                """;
+        assertEquals(new PaperAPI.Application("paper-1.21.11-40.jar", "AB12"), PaperAPI.readApplication(json(build)));
+        assertEquals(new PaperAPI.Application("x.jar", null),
+                PaperAPI.readApplication(json("{\"downloads\": {\"application\": {\"name\": \"x.jar\", \"sha256\": null}}}")));
+        assertNull(PaperAPI.readApplication(json("{\"downloads\": {\"mojang-mappings\": {\"name\": \"m.jar\"}}}")));
+        assertNull(PaperAPI.readApplication(json("{\"build\": 40}")));
+    }
+}
@@ -0,0 +1,71 @@
+package com.embeddedmc.download;
+
+import com.google.gson.stream.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PurpurAPITest {
+
+    private static JsonReader json(String text) {
+        return new JsonReader(new StringReader(text));
+    }
+
+    @Test
+    void readsTheLatestBuild() throws IOException {
+        String version = """
+                {"project": "purpur", "version": "1.21.11", "builds": {"all": ["2400", "2401", "2402"], "latest": "2402"}}
+                """;
+        assertEquals("2402", PurpurAPI.readLatestBuild(json(version)));
+        assertNull(PurpurAPI.readLatestBuild(json("{\"builds\": {\"all\": []}}")));
+        assertNull(PurpurAPI.readLatestBuild(json("{\"error\": \"version not found\"}")));
+    }
+
+    @Test
+    void readsTheMd5() throws IOException {
+        String build = """
+                {"project": "purpur", "version": "1.21.11", "build": "2402", "commits": [], "result": "SUCCESS",
+                 "timestamp": 1764584130000, "duration": 1000, "md5": "0123abcd"}
+                """;
+        assertEquals("0123abcd", PurpurAPI.readMd5(json(build)));
+        assertNull(PurpurAPI.readMd5(json("{\"build\": \"2402\", \"md5\": null}")));
+        assertNull(PurpurAPI.readMd5(json("{\"build\": \"2402\"}")));
+    }
+
+    @Test
+    void readsSuccessfulDetailedBuildsNewestFirst() throws IOException {
+        String detailed = """
+                {
+                  "project": "purpur",
+                  "version": "1.21.11",
+                  "builds": {
+                    "all": [
+                      {"build": "2400", "result": "SUCCESS", "timestamp": 1764584130000,
+                       "commits": [{"author": "a", "description": "First line\\nDetails", "hash": "h1"}]},
+                      {"build": "2401", "result": "FAILURE", "timestamp": 1764584140000, "commits": []},
+                      {"build": "2402", "result": "SUCCESS", "timestamp": 1764584150000,
+                       "commits": [{"description": "One"}, {"description": "Two"}]}
+                    ],
+                    "latest": "2402"
+                  }
+                }
+                """;
+        List<BuildInfo> builds = PurpurAPI.readBuilds(json(detailed));
+
+        assertEquals(List.of(
+                new BuildInfo(2402, 1764584150000L, null, List.of("One", "Two")),
+                new BuildInfo(2400, 1764584130000L, null, List.of("First line"))), builds);
+    }
+
+    @Test
+    void readsPlainBuildNumbers() throws IOException {
+        String plain = "{\"builds\": {\"all\": [\"1\", \"2\", \"custom\"], \"latest\": \"2\"}}";
+        assertEquals(List.of(0, 2, 1), PurpurAPI.readBuilds(json(plain)).stream().map(BuildInfo::build).toList());
+        assertEquals(List.of(), PurpurAPI.readBuilds(json("{\"error\": \"version not found\"}")));
+    }
+}
@@ -0,0 +1,209 @@
+package com.embeddedmc.download;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedDownloaderTest {
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final int SIZE = 4 * 1024 * 1024 + 123;
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private Path target;
+    private String url;
+
+    // What the server serves and how
+    private volatile byte[] content;
+    private volatile String etag = "\"v1\"";
+    private volatile boolean ranges = true;
+    // Body bytes left before every connection is cut, -1 for no limit
+    private final AtomicLong budget = new AtomicLong(-1);
+    private final AtomicLong served = new AtomicLong();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        content = randomBytes(1);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/server.jar", this::serve);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/server.jar";
+        target = dir.resolve("server.jar");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static byte[] randomBytes(int seed) {
+        byte[] bytes = new byte[SIZE];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String hash(String algorithm, byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance(algorithm).digest(data));
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = content;
+            if (budget.get() == 0) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            Matcher matcher = range != null ? RANGE.matcher(range) : null;
+            int from = 0;
+            int to = body.length - 1;
+            if (ranges && matcher != null && matcher.matches() && (ifRange == null || ifRange.equals(etag))) {
+                from = Integer.parseInt(matcher.group(1));
+                to = Math.min(to, Integer.parseInt(matcher.group(2)));
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + body.length);
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(206, to - from + 1);
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+            }
+
+            OutputStream out = exchange.getResponseBody();
+            for (int position = from; position <= to; ) {
+                int length = Math.min(16 * 1024, to - position + 1);
+                long left = budget.get();
+                if (left >= 0) {
+                    length = (int) Math.min(length, left);
+                    budget.addAndGet(-length);
+                }
+                if (length == 0) {
+                    // Cut the connection in the middle of the body
+                    return;
+                }
+                out.write(body, position, length);
+                served.addAndGet(length);
+                position += length;
+            }
+        }
+    }
+
+    private SegmentedDownloader downloader() {
+        return new SegmentedDownloader(url, target, 2, null);
+    }
+
+    private Path partFile() {
+        return dir.resolve("server.jar.part");
+    }
+
+    private Path journalFile() {
+        return dir.resolve("server.jar.part.json");
+    }
+
+    @Test
+    void downloadsInRangesAndVerifiesSha256() throws Exception {
+        SegmentedDownloader downloader = downloader().expectChecksum("SHA-256", hash("SHA-256", content));
+        downloader.download();
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(hash("SHA-256", content), downloader.getSha256());
+        assertFalse(Files.exists(partFile()));
+        assertFalse(Files.exists(journalFile()));
+    }
+
+    @Test
+    void verifiesOtherAlgorithms() throws Exception {
+        SegmentedDownloader downloader = downloader().expectChecksum("MD5", hash("MD5", content).toUpperCase());
+        downloader.download();
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        // SHA-256 is computed either way, for the jar store
+        assertEquals(hash("SHA-256", content), downloader.getSha256());
+    }
+
+    @Test
+    void rejectsChecksumMismatch() throws Exception {
+        SegmentedDownloader downloader = downloader().expectChecksum("SHA-256", hash("SHA-256", randomBytes(2)));
+
+        IOException error = assertThrows(IOException.class, downloader::download);
+        assertTrue(error.getMessage().contains("Checksum mismatch"), error.getMessage());
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(partFile()));
+    }
+
+    @Test
+    void resumesAnInterruptedDownload() throws Exception {
+        budget.set(SIZE / 3);
+        assertThrows(IOException.class, () -> downloader().download());
+        assertFalse(Files.exists(target));
+        assertTrue(Files.exists(journalFile()));
+        long first = served.getAndSet(0);
+
+        budget.set(-1);
+        SegmentedDownloader downloader = downloader().expectChecksum("SHA-256", hash("SHA-256", content));
+        downloader.download();
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        // Only what was missing is fetched again, plus the one-byte probe of each run. Bytes
+        // that were still arriving while the journal was written may be fetched twice.
+        long missing = SIZE - first + 2;
+        assertTrue(served.get() >= missing && served.get() <= missing + 64 * 1024,
+                "fetched " + served.get() + " bytes, " + missing + " were missing");
+        assertFalse(Files.exists(journalFile()));
+    }
+
+    @Test
+    void startsOverWhenTheFileChanged() throws Exception {
+        budget.set(SIZE / 3);
+        assertThrows(IOException.class, () -> downloader().download());
+        served.set(0);
+
+        content = randomBytes(3);
+        etag = "\"v2\"";
+        budget.set(-1);
+        SegmentedDownloader downloader = downloader().expectChecksum("SHA-256", hash("SHA-256", content));
+        downloader.download();
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(SIZE + 1, served.get());
+    }
+
+    @Test
+    void fallsBackToOneStreamWithoutRanges() throws Exception {
+        ranges = false;
+        SegmentedDownloader downloader = downloader().expectChecksum("SHA-256", hash("SHA-256", content));
+        downloader.download();
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertFalse(Files.exists(journalFile()));
+    }
+}
@@ -0,0 +1,100 @@
+package com.embeddedmc.server;
+
+import com.embeddedmc.config.ServerInstance;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstanceManifestTest {
+    @TempDir
+    Path instances;
+
+    private ServerInstance createInstance(String name, int port) throws IOException {
+        ServerInstance instance = new ServerInstance();
+        instance.setName(name);
+        instance.setType(ServerType.PURPUR);
+        instance.setMcVersion("1.21.8");
+        instance.setPort(port);
+        instance.setRamMB(4096);
+        instance.setInstancePath(instances.resolve(instance.getId()));
+        instance.save();
+        return instance;
+    }
+
+    private void writeManifest(String json) throws IOException {
+        Files.writeString(instances.resolve("manifest.json"), json);
+    }
+
+    @Test
+    void writtenManifestReadsBack() throws IOException {
+        ServerInstance first = createInstance("First", 25566);
+        ServerInstance second = createInstance("Second", 25567);
+        InstanceManifest.write(instances, List.of(first, second));
+
+        List<InstanceManifest.Entry> entries = InstanceManifest.read(instances);
+        assertEquals(List.of(InstanceManifest.Entry.of(first), InstanceManifest.Entry.of(second)), entries);
+
+        InstanceManifest.Entry entry = entries.get(0);
+        assertEquals(first.getId(), entry.id());
+        assertEquals("First", entry.name());
+        assertEquals(ServerType.PURPUR, entry.type());
+        assertEquals(25566, entry.port());
+        assertEquals(first.getId(), entry.path());
+        assertEquals(Files.getLastModifiedTime(first.getInstancePath().resolve("instance.json")).toMillis(),
+                entry.configModified());
+        assertFalse(Files.exists(instances.resolve("manifest.json.tmp")));
+    }
+
+    @Test
+    void missingOrBrokenManifestIsRebuilt() throws IOException {
+        assertNull(InstanceManifest.read(instances));
+
+        writeManifest("[{\"id\": \"a\", \"name\": ");
+        assertNull(InstanceManifest.read(instances));
+
+        writeManifest("{\"id\": \"a\"}");
+        assertNull(InstanceManifest.read(instances));
+
+        writeManifest("");
+        assertEquals(List.of(), InstanceManifest.read(instances));
+    }
+
+    @Test
+    void rejectsEntriesOutsideTheInstancesDirectory() throws IOException {
+        String entry = "{\"id\": \"a\", \"name\": \"A\", \"type\": \"PAPER\", \"mcVersion\": \"1.21.11\", \"port\": 25565, "
+                + "\"path\": %s, \"configModified\": 0}";
+        writeManifest("[" + entry.formatted("\"a\"") + "]");
+        assertEquals(1, InstanceManifest.read(instances).size());
+
+        for (String path : List.of("\"..\"", "\".\"", "\"\"", "\"a/b\"", "\"/tmp/a\"", "null")) {
+            writeManifest("[" + entry.formatted(path) + "]");
+            assertNull(InstanceManifest.read(instances), path);
+        }
+        writeManifest("[" + entry.formatted("\"a\"").replace("\"PAPER\"", "\"NOT_A_TYPE\"") + "]");
+        assertNull(InstanceManifest.read(instances));
+    }
+
+    @Test
+    void stubLoadsItsDetailsInPlace() throws IOException {
+        ServerInstance saved = createInstance("Saved", 25570);
+        InstanceManifest.Entry entry = InstanceManifest.Entry.of(saved);
+
+        ServerInstance stub = ServerInstance.stub(instances.resolve(entry.path()), entry.id(), entry.name(),
+                entry.type(), entry.mcVersion(), entry.port());
+        assertFalse(stub.isDetailsLoaded());
+
+        stub.ensureLoaded();
+        assertTrue(stub.isDetailsLoaded());
+        assertEquals(4096, stub.getRamMB());
+        assertEquals("Saved", stub.getName());
+    }
+}
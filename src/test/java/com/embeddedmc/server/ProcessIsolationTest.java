@@ -0,0 +1,59 @@
+package com.embeddedmc.server;
+
+import com.embeddedmc.config.ModConfig;
+import com.embeddedmc.config.ServerInstance;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProcessIsolationTest {
+
+    @Test
+    void parsesRangesAndSingleCpus() {
+        assertEquals(List.of(0, 1, 2, 3, 8, 10, 11), ProcessIsolation.parseCpuList("0-3,8,10-11"));
+    }
+
+    @Test
+    void parsesUnsortedOverlappingListsWithSpaces() {
+        assertEquals(List.of(2, 3, 4, 5, 7), ProcessIsolation.parseCpuList(" 7, 4-5 ,2-4"));
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertThrows(NumberFormatException.class, () -> ProcessIsolation.parseCpuList("0-x"));
+    }
+
+    @Test
+    void formatsConsecutiveCpusAsRanges() {
+        assertEquals("1-3,5,7-8", ProcessIsolation.formatCpuList(List.of(1, 2, 3, 5, 7, 8)));
+        assertEquals("4", ProcessIsolation.formatCpuList(List.of(4)));
+        assertEquals("", ProcessIsolation.formatCpuList(List.of()));
+    }
+
+    @Test
+    void formatIsTheInverseOfParse() {
+        for (String list : List.of("0", "0-7", "1,3,5", "0-1,4-5,9", "12-15,32-47")) {
+            assertEquals(list, ProcessIsolation.formatCpuList(ProcessIsolation.parseCpuList(list)));
+        }
+    }
+
+    @Test
+    void explicitAffinityWins() {
+        ServerInstance instance = new ServerInstance();
+        instance.setCpuAffinity(" 2-3 ");
+        ModConfig config = new ModConfig();
+        config.setReservedClientCores(1);
+        assertEquals("2-3", ProcessIsolation.resolveCpuList(instance, config));
+    }
+
+    @Test
+    void noAffinityWithoutReservedCores() {
+        ModConfig config = new ModConfig();
+        config.setReservedClientCores(0);
+        assertNull(ProcessIsolation.resolveCpuList(new ServerInstance(), config));
+    }
+}
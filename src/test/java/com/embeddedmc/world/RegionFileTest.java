@@ -0,0 +1,99 @@
+package com.embeddedmc.world;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionFileTest {
+    @TempDir
+    Path dir;
+
+    static byte[] record(int seed, int length) {
+        byte[] record = new byte[length];
+        new Random(seed).nextBytes(record);
+        record[0] = 2; // zlib
+        return record;
+    }
+
+    @Test
+    void writtenChunksReadBack() throws IOException {
+        byte[][] records = new byte[RegionFile.CHUNKS][];
+        int[] timestamps = new int[RegionFile.CHUNKS];
+        records[0] = record(0, 100);
+        records[5] = record(5, 3 * RegionFile.SECTOR_BYTES + 17);
+        records[1023] = record(1023, RegionFile.SECTOR_BYTES - 4);
+        timestamps[0] = 1_700_000_000;
+        timestamps[5] = 1_700_000_005;
+        timestamps[1023] = 1_700_001_023;
+
+        Path file = dir.resolve("r.0.0.mca");
+        RegionFile.write(file, records, timestamps);
+
+        try (RegionFile region = RegionFile.open(file)) {
+            for (int i = 0; i < RegionFile.CHUNKS; i++) {
+                assertEquals(records[i] != null, region.hasChunk(i), "chunk " + i);
+                assertEquals(timestamps[i], region.getTimestamp(i), "timestamp " + i);
+                assertArrayEquals(records[i], region.readChunkRecord(i), "record " + i);
+            }
+            // Length prefix plus record, rounded up to whole sectors
+            assertEquals(1, region.getSectorCount(0));
+            assertEquals(4, region.getSectorCount(5));
+            assertEquals(1, region.getSectorCount(1023));
+            assertEquals(2, region.getSectorOffset(0));
+            assertEquals(RegionFile.HEADER_BYTES + 6L * RegionFile.SECTOR_BYTES, region.getFileSize());
+        }
+    }
+
+    @Test
+    void rawSectorsAreCopiedUnchanged() throws IOException {
+        byte[][] records = new byte[RegionFile.CHUNKS][];
+        byte[][] raw = new byte[RegionFile.CHUNKS][];
+        int[] timestamps = new int[RegionFile.CHUNKS];
+        records[0] = record(0, 50);
+        // A length prefix larger than the chunk's sectors
+        raw[1] = new byte[2 * RegionFile.SECTOR_BYTES];
+        raw[1][0] = 0x7F;
+        raw[1][100] = 42;
+
+        Path file = dir.resolve("r.0.0.mca");
+        RegionFile.write(file, records, raw, timestamps);
+
+        try (RegionFile region = RegionFile.open(file)) {
+            assertArrayEquals(records[0], region.readChunkRecord(0));
+            assertTrue(region.hasChunk(1));
+            assertNull(region.readChunkRecord(1));
+            assertArrayEquals(raw[1], region.readSectors(1));
+        }
+    }
+
+    @Test
+    void truncatedFileHasNoChunks() throws IOException {
+        Path file = dir.resolve("r.0.0.mca");
+        Files.write(file, new byte[100]);
+        try (RegionFile region = RegionFile.open(file)) {
+            for (int i = 0; i < RegionFile.CHUNKS; i++) {
+                assertFalse(region.hasChunk(i));
+            }
+            assertNull(region.readChunkRecord(0));
+        }
+    }
+
+    @Test
+    void parsesRegionCoordinates() {
+        assertArrayEquals(new int[]{-1, 2}, RegionFile.parseCoordinates(Path.of("region", "r.-1.2.mca")));
+        assertNull(RegionFile.parseCoordinates(Path.of("r.0.0.mcc")));
+        assertNull(RegionFile.parseCoordinates(Path.of("r.a.0.mca")));
+        assertNull(RegionFile.parseCoordinates(Path.of("level.dat")));
+        assertTrue(RegionFile.isRegionFile(Path.of("r.0.0.mca")));
+    }
+}
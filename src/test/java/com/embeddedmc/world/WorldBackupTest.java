@@ -0,0 +1,178 @@
+package com.embeddedmc.world;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorldBackupTest {
+    @TempDir
+    Path instance;
+
+    private Path world;
+    private Path region;
+    private Path levelDat;
+    private byte[][] records;
+    private int[] timestamps;
+    private long mtime = 1_700_000_000_000L;
+    private WorldBackup backup;
+
+    @BeforeEach
+    void createWorld() throws IOException {
+        world = instance.resolve("world");
+        region = world.resolve("region").resolve("r.0.0.mca");
+        levelDat = world.resolve("level.dat");
+        Files.createDirectories(region.getParent());
+
+        records = new byte[RegionFile.CHUNKS][];
+        timestamps = new int[RegionFile.CHUNKS];
+        for (int i = 0; i < 8; i++) {
+            setChunk(i, RegionFileTest.record(i, 1000 + i * 900), 100);
+        }
+        writeRegion();
+        writeLevel("level v1");
+
+        backup = new WorldBackup(instance.resolve("backups"), 0);
+    }
+
+    private void setChunk(int index, byte[] record, int timestamp) {
+        records[index] = record;
+        timestamps[index] = timestamp;
+    }
+
+    private void writeRegion() throws IOException {
+        RegionFile.write(region, records, timestamps);
+        touch(region);
+    }
+
+    private void writeLevel(String content) throws IOException {
+        Files.writeString(levelDat, content);
+        touch(levelDat);
+    }
+
+    // Explicit mtimes, so changes are seen regardless of the timestamp resolution
+    private void touch(Path file) throws IOException {
+        mtime += 1000;
+        Files.setLastModifiedTime(file, FileTime.fromMillis(mtime));
+    }
+
+    private String snapshot() throws IOException, InterruptedException {
+        // Snapshot names have millisecond resolution
+        Thread.sleep(2);
+        return backup.createSnapshot(List.of(world), instance).name();
+    }
+
+    private void assertRestores(String snapshot, byte[] region, String level) throws IOException {
+        Path target = Files.createTempDirectory(instance, "restore");
+        backup.restore(snapshot, target);
+        assertArrayEquals(region, Files.readAllBytes(target.resolve("world/region/r.0.0.mca")));
+        assertEquals(level, Files.readString(target.resolve("world/level.dat")));
+    }
+
+    private long objectCount() throws IOException {
+        try (Stream<Path> walk = Files.walk(backup.getBackupDir().resolve("objects"))) {
+            return walk.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    void restoresEverySnapshot() throws Exception {
+        byte[] regionV1 = Files.readAllBytes(region);
+        String first = snapshot();
+
+        setChunk(3, RegionFileTest.record(33, 5000), 200);
+        writeRegion();
+        writeLevel("level v2");
+        byte[] regionV2 = Files.readAllBytes(region);
+        String second = snapshot();
+
+        assertEquals(List.of(first, second), backup.listSnapshots());
+        assertRestores(first, regionV1, "level v1");
+        assertRestores(second, regionV2, "level v2");
+    }
+
+    @Test
+    void storesOnlyChangedChunks() throws Exception {
+        WorldBackup.Result first = backup.createSnapshot(List.of(world), instance);
+        assertEquals(2, first.files());
+
+        // Nothing touched: not even read
+        Thread.sleep(2);
+        WorldBackup.Result unchanged = backup.createSnapshot(List.of(world), instance);
+        assertEquals(0, unchanged.bytesRead());
+        assertEquals(0, unchanged.bytesStored());
+
+        // One chunk saved again: only that chunk and the new region index are stored
+        byte[] chunk = RegionFileTest.record(44, 3000);
+        setChunk(4, chunk, 300);
+        writeRegion();
+        Thread.sleep(2);
+        WorldBackup.Result changed = backup.createSnapshot(List.of(world), instance);
+        long index = RegionFile.CHUNKS * 5L + 8 * 32;
+        assertEquals(chunk.length + index, changed.bytesStored());
+    }
+
+    @Test
+    void pruneKeepsTheNewestAndTheirObjects() throws Exception {
+        snapshot();
+        long afterFirst = objectCount();
+
+        setChunk(0, RegionFileTest.record(100, 2000), 200);
+        writeRegion();
+        writeLevel("level v2");
+        snapshot();
+
+        setChunk(0, RegionFileTest.record(101, 2000), 300);
+        writeRegion();
+        writeLevel("level v3");
+        byte[] regionV3 = Files.readAllBytes(region);
+        String third = snapshot();
+
+        assertEquals(0, backup.prune(3));
+        assertEquals(2, backup.prune(1));
+        assertEquals(List.of(third), backup.listSnapshots());
+        // Chunk 0, the level and the region index of both older versions are gone
+        assertEquals(afterFirst, objectCount());
+        assertRestores(third, regionV3, "level v3");
+
+        // The next snapshot still builds on the remaining one
+        setChunk(1, RegionFileTest.record(102, 2000), 400);
+        writeRegion();
+        byte[] regionV4 = Files.readAllBytes(region);
+        String fourth = snapshot();
+        assertRestores(fourth, regionV4, "level v3");
+    }
+
+    @Test
+    void corruptChunksSurviveTheRoundTrip() throws Exception {
+        byte[][] raw = new byte[RegionFile.CHUNKS][];
+        raw[9] = new byte[RegionFile.SECTOR_BYTES];
+        raw[9][0] = 0x7F;
+        raw[9][4000] = 1;
+        timestamps[9] = 100;
+        RegionFile.write(region, records, raw, timestamps);
+        touch(region);
+        byte[] original = Files.readAllBytes(region);
+
+        String name = snapshot();
+        Files.delete(region);
+        assertRestores(name, original, "level v1");
+    }
+
+    @Test
+    void missingSnapshotFails() {
+        assertThrows(IOException.class, () -> backup.restore("20000101-000000-000", instance.resolve("restore")));
+        assertFalse(Files.exists(instance.resolve("restore/world")));
+    }
+}